@@ -0,0 +1,61 @@
+/* FingerprintTable.java
+ *
+ * Open addressing hash table from particle fingerprints (long) to particle indexes (int), with no boxing.
+ * Used by ParticleSwarmOptimization.java once per epoch to find particles holding the same permutation.
+ * Entries are stamped with a generation, so clearing between epochs is O(1) instead of wiping the arrays.
+ *
+ * @author: James M. Bayon-on
+ * @version: 1.0
+ */
+
+public class FingerprintTable {
+	private long keys[];
+	private int values[];
+	private int generations[];				//slot is in use only if it matches the current generation
+	private int generation;
+	private int mask;
+
+	/* Instantiates the table.
+	 *
+	 * @param: most entries held between clears
+	 */
+	public FingerprintTable(int maxEntries) {
+		int capacity = Integer.highestOneBit(Math.max(2, maxEntries) * 2 - 1) << 1;	//power of two, at most half full
+		keys = new long[capacity];
+		values = new int[capacity];
+		generations = new int[capacity];
+		generation = 1;
+		mask = capacity - 1;
+	}
+
+	/* Empties the table.
+	 *
+	 */
+	public void clear() {
+		generation++;
+		if(generation == 0) {												//wrapped, old stamps could match again
+			java.util.Arrays.fill(generations, 0);
+			generation = 1;
+		}
+	}
+
+	/* Adds a fingerprint unless it is already in the table.
+	 *
+	 * @param: fingerprint
+	 * @param: index to store with it
+	 * @return: index stored with the fingerprint already in the table, -1 if it was added
+	 */
+	public int putIfAbsent(long key, int value) {
+		int slot = (int)(key ^ (key >>> 32)) & mask;
+		while(generations[slot] == generation) {
+			if(keys[slot] == key) {
+				return values[slot];
+			}
+			slot = (slot + 1) & mask;
+		}
+		generations[slot] = generation;
+		keys[slot] = key;
+		values[slot] = value;
+		return -1;
+	}
+}
@@ -0,0 +1,380 @@
+/* IslandCoordinator.java
+ *
+ * Coordinates island swarms running in separate IslandNode.java processes.
+ * Keeps the best board reported by any node, broadcasts it whenever it improves and tells every node
+ * to stop as soon as one of them reports zero conflicts. A node that disconnects is dropped and the rest carry on.
+ * Every node has its own outbox and writer thread, so a node that hangs and stops reading never blocks the others;
+ * once its outbox is full it is dropped like a disconnected one.
+ *
+ * Running main launches the nodes as separate JVMs on localhost, which doubles as the loopback test harness.
+ *
+ * @author: James M. Bayon-on
+ * @version: 1.0
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.SplittableRandom;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class IslandCoordinator {
+	private static final int OUTBOX_CAPACITY = 64;	//messages queued for a node before it counts as hung
+
+	private int MAX_LENGTH;
+	private ServerSocket serverSocket;
+	private ArrayList<Outbox> nodes;
+	private IslandMessage globalBest;
+	private IslandMessage solution;
+	private CountDownLatch solved;
+	private volatile boolean running;
+
+	/* Messages waiting to be written to one node by its own writer thread.
+	 *
+	 */
+	private static class Outbox {
+		Socket socket;
+		ArrayBlockingQueue<IslandMessage> queue;
+		Thread writer;
+		volatile boolean leaving;			//sent STOP or dropped, so the node disconnecting is expected
+
+		/* Starts the writer thread of a node.
+		 *
+		 * @param: a connected node socket
+		 * @param: stream to the node
+		 */
+		Outbox(final Socket socket, final DataOutputStream out) {
+			this.socket = socket;
+			this.queue = new ArrayBlockingQueue<IslandMessage>(OUTBOX_CAPACITY);
+			this.leaving = false;
+			this.writer = new Thread(new Runnable() {
+				public void run() {
+					try {
+						while(true) {
+							queue.take().write(out);
+						}
+					} catch (IOException e) {
+						close();
+					} catch (InterruptedException e) {
+						//node left, nothing more to write
+					}
+				}
+			}, "island-writer-" + socket.getPort());
+			writer.setDaemon(true);
+			writer.start();
+		}
+
+		/* Closes the node's socket, which also ends its reader thread.
+		 *
+		 */
+		void close() {
+			try {
+				socket.close();
+			} catch (IOException e) {
+				//already closed
+			}
+		}
+	}
+
+	/* Instantiates the coordinator.
+	 *
+	 * @param: size of n
+	 */
+	public IslandCoordinator(int n) {
+		MAX_LENGTH = n;
+		nodes = new ArrayList<Outbox>();
+		globalBest = null;
+		solution = null;
+		solved = new CountDownLatch(1);
+		running = false;
+	}
+
+	/* Binds the loopback socket and starts accepting nodes in the background.
+	 *
+	 * @param: port to listen on, 0 to pick a free one
+	 */
+	public void start(int port) throws IOException {
+		serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+		running = true;
+
+		Thread acceptor = new Thread(new Runnable() {
+			public void run() {
+				acceptNodes();
+			}
+		}, "island-acceptor");
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	/* Accepts nodes until the coordinator is closed, reading each one on its own thread.
+	 *
+	 */
+	public void acceptNodes() {
+		while(running) {
+			try {
+				final Socket node = serverSocket.accept();
+				node.setTcpNoDelay(true);
+				Thread reader = new Thread(new Runnable() {
+					public void run() {
+						serveNode(node);
+					}
+				}, "island-node-" + node.getPort());
+				reader.setDaemon(true);
+				reader.start();
+			} catch (IOException e) {
+				if(running) {
+					System.out.println("Accepting node failed");
+				}
+			}
+		}
+	}
+
+	/* Reads a node's messages until it disconnects, then drops it.
+	 *
+	 * @param: a connected node socket
+	 */
+	public void serveNode(Socket node) {
+		Outbox out = null;
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(node.getInputStream()));
+
+			IslandMessage hello = IslandMessage.read(in);
+			if(hello.getType() != IslandMessage.HELLO) {
+				throw new IOException("Expected hello");
+			}
+			out = new Outbox(node, new DataOutputStream(new BufferedOutputStream(node.getOutputStream())));
+			join(out);
+
+			while(running) {
+				IslandMessage message = IslandMessage.read(in);
+				if(message.getData().length != MAX_LENGTH) {
+					continue;												//node solving a different n
+				}
+				if(message.getType() == IslandMessage.SOLVED && message.getConflicts() == 0) {
+					finish(message);
+				} else if(message.getType() == IslandMessage.ELITE) {
+					offer(message, out);
+				}
+			}
+		} catch (IOException e) {
+			if(running && (out == null || !out.leaving)) {					//nodes disconnect on their own after STOP
+				System.out.println("Lost node " + node.getPort());
+			}
+		} finally {
+			if(out != null) {
+				leave(out);
+				out.writer.interrupt();
+			}
+			try {
+				node.close();
+			} catch (IOException e) {
+				//already closed
+			}
+		}
+	}
+
+	/* Adds a node to the broadcast list and sends it the current global best.
+	 *
+	 * @param: outbox of the node
+	 */
+	private synchronized void join(Outbox out) {
+		nodes.add(out);
+		if(solution != null) {
+			send(out, new IslandMessage(IslandMessage.STOP, 0, solution.getData()));
+		} else if(globalBest != null) {
+			send(out, new IslandMessage(IslandMessage.BEST, globalBest.getConflicts(), globalBest.getData()));
+		}
+	}
+
+	/* Removes a node from the broadcast list.
+	 *
+	 * @param: outbox of the node
+	 */
+	private synchronized void leave(Outbox out) {
+		nodes.remove(out);
+	}
+
+	/* Keeps an elite board if it beats the global best and broadcasts it to every other node.
+	 *
+	 * @param: elite message from a node
+	 * @param: outbox of the node that sent it
+	 */
+	private synchronized void offer(IslandMessage elite, Outbox sender) {
+		if(solution != null || (globalBest != null && elite.getConflicts() >= globalBest.getConflicts())) {
+			return;
+		}
+		globalBest = elite;
+
+		IslandMessage best = new IslandMessage(IslandMessage.BEST, elite.getConflicts(), elite.getData());
+		for(Outbox out: new ArrayList<Outbox>(nodes)) {
+			if(out != sender) {
+				send(out, best);
+			}
+		}
+	}
+
+	/* Records the first solution and tells every node to stop.
+	 *
+	 * @param: solved message from a node
+	 */
+	public synchronized void finish(IslandMessage message) {
+		if(solution != null) {
+			return;
+		}
+		solution = message;
+
+		IslandMessage stop = new IslandMessage(IslandMessage.STOP, 0, message.getData());
+		for(Outbox out: new ArrayList<Outbox>(nodes)) {
+			send(out, stop);
+		}
+		solved.countDown();
+	}
+
+	/* Tells every node to stop without a solution, used when the search runs out of time.
+	 *
+	 */
+	public synchronized void stopAll() {
+		IslandMessage stop = new IslandMessage(IslandMessage.STOP, -1, new int[0]);
+		for(Outbox out: new ArrayList<Outbox>(nodes)) {
+			send(out, stop);
+		}
+	}
+
+	/* Queues a message for one node without blocking, dropping the node if its outbox is full.
+	 *
+	 * @param: outbox of the node
+	 * @param: message to send
+	 */
+	private void send(Outbox out, IslandMessage message) {
+		if(message.getType() == IslandMessage.STOP) {
+			out.leaving = true;
+		}
+		if(!out.queue.offer(message)) {
+			System.out.println("Dropped hung node " + out.socket.getPort());
+			out.leaving = true;
+			nodes.remove(out);
+			out.close();
+		}
+	}
+
+	/* Waits until a node reports a solution.
+	 *
+	 * @param: timeout in milliseconds
+	 * @return: the solution, null if none was found in time
+	 */
+	public int[] awaitSolution(long timeoutMillis) throws InterruptedException {
+		if(solved.await(timeoutMillis, TimeUnit.MILLISECONDS)) {
+			return solution.getData();
+		}
+		return null;
+	}
+
+	/* Stops accepting nodes.
+	 *
+	 */
+	public void close() {
+		running = false;
+		try {
+			serverSocket.close();
+		} catch (IOException e) {
+			//already closed
+		}
+	}
+
+	/* gets the port the coordinator listens on
+	 *
+	 * @return: port
+	 */
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	/* gets the number of nodes still connected
+	 *
+	 * @return: node count
+	 */
+	public synchronized int getNodeCount() {
+		return nodes.size();
+	}
+
+	/* Launches a node in its own JVM using the classpath of this one.
+	 *
+	 * @param: port of the coordinator
+	 * @param: size of n
+	 * @param: seed of the node
+	 * @return: the node process
+	 */
+	public static Process launchNode(int port, int n, long seed) throws IOException {
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+				"IslandNode", Integer.toString(port), Integer.toString(n), "4", "5000", Long.toString(seed));
+		builder.inheritIO();
+		return builder.start();
+	}
+
+	/* Starts a coordinator and launches node JVMs on localhost.
+	 * Usage: java IslandCoordinator <n> [nodes] [timeoutSeconds] [killOneAfterMillis] [masterSeed]
+	 * killOneAfterMillis kills the first node after the given time to check that the others keep going, -1 for never.
+	 * Each node gets its own seed split from the master seed.
+	 *
+	 */
+	public static void main(String args[]) throws Exception {
+		int n = Integer.parseInt(args[0]);
+		int nodeCount = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+		long timeout = args.length > 2 ? Long.parseLong(args[2]) * 1000 : 600000;
+		long killAfter = args.length > 3 ? Long.parseLong(args[3]) : -1;
+		long masterSeed = args.length > 4 ? Long.parseLong(args[4]) : new SplittableRandom().nextLong();
+		SplittableRandom nodeSeeds = new SplittableRandom(masterSeed);
+
+		IslandCoordinator coordinator = new IslandCoordinator(n);
+		coordinator.start(0);
+		System.out.println("Coordinator on port " + coordinator.getPort() + ", launching " + nodeCount + " nodes, master seed " + masterSeed);
+
+		Process[] processes = new Process[nodeCount];
+		for(int i = 0; i < nodeCount; i++) {
+			processes[i] = launchNode(coordinator.getPort(), n, nodeSeeds.split().nextLong());
+		}
+
+		long startTime = System.nanoTime();
+		int[] solution = null;
+		if(killAfter >= 0) {
+			solution = coordinator.awaitSolution(killAfter);
+			if(solution == null) {
+				processes[0].destroyForcibly();
+				System.out.println("Killed node 0");
+				solution = coordinator.awaitSolution(timeout);
+			}
+		} else {
+			solution = coordinator.awaitSolution(timeout);
+		}
+		long totalTime = System.nanoTime() - startTime;
+
+		if(solution == null) {
+			coordinator.stopAll();
+			System.out.println("No solution found");
+		} else {
+			StringBuilder sb = new StringBuilder();
+			for(int i = 0; i < solution.length; i++) {
+				sb.append(solution[i]).append(i < solution.length - 1 ? "," : "");
+			}
+			System.out.println("SOLUTION " + sb.toString());
+			System.out.println("time in nanoseconds: " + totalTime);
+		}
+
+		for(Process p: processes) {
+			if(!p.waitFor(5, TimeUnit.SECONDS)) {
+				p.destroyForcibly();
+			}
+		}
+		coordinator.close();
+	}
+}
@@ -0,0 +1,107 @@
+/* IslandMessage.java
+ *
+ * Message exchanged between IslandCoordinator.java and IslandNode.java.
+ * Every message is written as a type byte, the conflicts of the board as a long, n, then n queen positions.
+ *
+ * @author: James M. Bayon-on
+ * @version: 1.0
+ */
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+public class IslandMessage {
+	public static final byte HELLO = 1;		//node -> coordinator, node joined (no board)
+	public static final byte ELITE = 2;		//node -> coordinator, best board of the node
+	public static final byte BEST = 3;		//coordinator -> node, best board across all nodes
+	public static final byte SOLVED = 4;	//node -> coordinator, board with zero conflicts
+	public static final byte STOP = 5;		//coordinator -> node, stop searching, the board is the solution or empty if none was found
+
+	private byte type;
+	private long conflicts;
+	private int data[];
+
+	/* Instantiates a message.
+	 *
+	 * @param: message type
+	 * @param: conflicts of the board
+	 * @param: queen positions per row
+	 */
+	public IslandMessage(byte type, long conflicts, int[] data) {
+		this.type = type;
+		this.conflicts = conflicts;
+		this.data = data;
+	}
+
+	/* Instantiates a message carrying the board of a particle.
+	 *
+	 * @param: message type
+	 * @param: a particle
+	 */
+	public IslandMessage(byte type, Particle p) {
+		this.type = type;
+		this.conflicts = p.getConflicts();
+		this.data = new int[p.getMaxLength()];
+		for(int i = 0; i < data.length; i++) {
+			data[i] = p.getData(i);
+		}
+	}
+
+	/* Writes the message to a stream.
+	 *
+	 * @param: stream of the receiving side
+	 */
+	public void write(DataOutputStream out) throws IOException {
+		out.writeByte(type);
+		out.writeLong(conflicts);
+		out.writeInt(data.length);
+		for(int i = 0; i < data.length; i++) {
+			out.writeInt(data[i]);
+		}
+		out.flush();
+	}
+
+	/* Reads the next message from a stream, blocking until one arrives.
+	 *
+	 * @param: stream of the sending side
+	 * @return: the message read
+	 */
+	public static IslandMessage read(DataInputStream in) throws IOException {
+		byte type = in.readByte();
+		long conflicts = in.readLong();
+		int n = in.readInt();
+		if(n < 0 || n > 1 << 20) {
+			throw new IOException("Bad board size " + n);
+		}
+		int data[] = new int[n];
+		for(int i = 0; i < n; i++) {
+			data[i] = in.readInt();
+		}
+		return new IslandMessage(type, conflicts, data);
+	}
+
+	/* gets the message type
+	 *
+	 * @return: type
+	 */
+	public byte getType() {
+		return type;
+	}
+
+	/* gets the conflicts of the board
+	 *
+	 * @return: conflicts
+	 */
+	public long getConflicts() {
+		return conflicts;
+	}
+
+	/* gets the queen positions of the board
+	 *
+	 * @return: queen positions per row
+	 */
+	public int[] getData() {
+		return data;
+	}
+}
@@ -0,0 +1,198 @@
+/* IslandNode.java
+ *
+ * One island of a distributed swarm. Runs ParticleSwarmOptimization.java epoch by epoch, sends its best
+ * board to IslandCoordinator.java every few epochs and takes the global best in place of its worst particle.
+ * If the coordinator is lost the node keeps searching on its own.
+ * Each swarm the node starts is seeded from the node's own split of the coordinator's master seed.
+ *
+ * @author: James M. Bayon-on
+ * @version: 1.0
+ */
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.SplittableRandom;
+
+public class IslandNode {
+	private int MAX_LENGTH;
+	private int MIGRATION_INTERVAL;			//epochs between exchanges with the coordinator
+	private ParticleSwarmOptimization pso;
+	private SplittableRandom swarmSeeds;	//one seed per swarm this node starts
+
+	private Socket socket;
+	private DataOutputStream out;
+	private volatile boolean connected;
+	private volatile boolean stopped;
+	private volatile int[] immigrant;		//latest global best not yet taken into the swarm
+	private int[] solution;
+
+	/* Instantiates an island node.
+	 *
+	 * @param: size of n
+	 * @param: max velocity for PSO
+	 * @param: max epoch for PSO, the swarm restarts after this many epochs without a solution
+	 * @param: seed of this node
+	 */
+	public IslandNode(int n, double maxVelocity, int maxEpoch, long seed) {
+		MAX_LENGTH = n;
+		MIGRATION_INTERVAL = 10;
+		pso = new ParticleSwarmOptimization(n);
+		pso.setVerbose(false);
+		pso.setVMax(maxVelocity);
+		pso.setMaxEpoch(maxEpoch);
+		swarmSeeds = new SplittableRandom(seed);
+		connected = false;
+		stopped = false;
+		immigrant = null;
+		solution = null;
+	}
+
+	/* Connects to the coordinator on this machine and starts listening for its messages.
+	 *
+	 * @param: port of the coordinator
+	 */
+	public void connect(int port) throws IOException {
+		socket = new Socket(InetAddress.getLoopbackAddress(), port);
+		socket.setTcpNoDelay(true);
+		out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+		final DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+		connected = true;
+
+		send(new IslandMessage(IslandMessage.HELLO, 0, new int[0]));
+
+		Thread listener = new Thread(new Runnable() {
+			public void run() {
+				listen(in);
+			}
+		}, "island-listener");
+		listener.setDaemon(true);
+		listener.start();
+	}
+
+	/* Reads messages from the coordinator until it stops the node or goes away.
+	 *
+	 * @param: stream from the coordinator
+	 */
+	public void listen(DataInputStream in) {
+		try {
+			while(!stopped) {
+				IslandMessage message = IslandMessage.read(in);
+				if(message.getType() == IslandMessage.BEST) {
+					immigrant = message.getData();
+				} else if(message.getType() == IslandMessage.STOP) {
+					if(message.getData().length == MAX_LENGTH) {
+						solution = message.getData();
+					}
+					stopped = true;
+				}
+			}
+		} catch (IOException e) {
+			if(!stopped) {
+				System.out.println("Lost coordinator, continuing alone");
+			}
+			connected = false;
+		}
+	}
+
+	/* Sends a message to the coordinator, dropping the connection if it fails.
+	 *
+	 * @param: message to send
+	 */
+	public void send(IslandMessage message) {
+		if(!connected) {
+			return;
+		}
+		try {
+			synchronized(out) {
+				message.write(out);
+			}
+		} catch (IOException e) {
+			System.out.println("Lost coordinator, continuing alone");
+			connected = false;
+		}
+	}
+
+	/* Searches until this node or another one finds a solution.
+	 *
+	 * @return: the solution, null if the coordinator stopped the search without one
+	 */
+	public int[] run() {
+		pso.setSeed(swarmSeeds.nextLong());
+		pso.reset();
+
+		while(!stopped) {
+			if(pso.getEpoch() >= pso.getMaxEpoch()) {						//stuck, start a fresh swarm
+				pso.setSeed(swarmSeeds.nextLong());
+				pso.reset();
+			}
+
+			if(pso.step()) {
+				Particle best = pso.getBestParticle();
+				solution = new IslandMessage(IslandMessage.SOLVED, best).getData();
+				send(new IslandMessage(IslandMessage.SOLVED, best));
+				stopped = true;
+			} else if(pso.getEpoch() % MIGRATION_INTERVAL == 0) {
+				send(new IslandMessage(IslandMessage.ELITE, pso.getBestParticle()));
+
+				int[] migrant = immigrant;
+				if(migrant != null && migrant.length == MAX_LENGTH) {
+					pso.immigrate(migrant);
+					immigrant = null;
+				}
+			}
+		}
+
+		close();
+		return solution;
+	}
+
+	/* Closes the connection to the coordinator.
+	 *
+	 */
+	public void close() {
+		connected = false;
+		try {
+			if(socket != null) {
+				socket.close();
+			}
+		} catch (IOException e) {
+			//already closed
+		}
+	}
+
+	/* Starts a node and joins a coordinator.
+	 * Usage: java IslandNode <port> <n> [maxVelocity] [maxEpochs] [seed]
+	 *
+	 */
+	public static void main(String args[]) {
+		int port = Integer.parseInt(args[0]);
+		int n = Integer.parseInt(args[1]);
+		double maxVelocity = args.length > 2 ? Double.parseDouble(args[2]) : 4;
+		int maxEpoch = args.length > 3 ? Integer.parseInt(args[3]) : 5000;
+		long seed = args.length > 4 ? Long.parseLong(args[4]) : new SplittableRandom().nextLong();
+
+		System.out.println("node seed: " + seed);
+		IslandNode node = new IslandNode(n, maxVelocity, maxEpoch, seed);
+		try {
+			node.connect(port);
+		} catch (IOException e) {
+			System.out.println("Cannot reach coordinator, running alone");
+		}
+
+		int[] solution = node.run();
+		if(solution == null) {
+			System.out.println("node stopped without a solution");
+			return;
+		}
+		StringBuilder sb = new StringBuilder();
+		for(int i = 0; i < solution.length; i++) {
+			sb.append(solution[i]).append(i < solution.length - 1 ? "," : "");
+		}
+		System.out.println("node done: " + sb.toString());
+	}
+}
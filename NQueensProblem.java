@@ -0,0 +1,110 @@
+/* NQueensProblem.java
+ *
+ * N-Queens as a permutation problem. Position i of the permutation is the column of the queen in row i,
+ * so rows and columns never clash and only diagonals are counted.
+ * Fitness is the same count Particle.java used to get by walking a String board: for every queen, the number of other
+ * queens on its diagonals. That is twice the number of attacking pairs.
+ *
+ * Holds scratch counters, so use one instance per thread.
+ *
+ * @author: James M. Bayon-on
+ * @version: 1.0
+ */
+
+import java.util.Arrays;
+
+public class NQueensProblem implements PermutationProblem {
+	private int MAX_LENGTH;
+	private int diagonals[];				//queens per diagonal, indexed by row + column
+	private int antiDiagonals[];			//queens per anti-diagonal, indexed by row - column + n - 1
+
+	/* Instantiates the problem.
+	 *
+	 * @param: size of n
+	 */
+	public NQueensProblem(int n) {
+		MAX_LENGTH = n;
+		diagonals = new int[2 * n - 1];
+		antiDiagonals = new int[2 * n - 1];
+	}
+
+	/* Gets the number of queens.
+	 *
+	 * @return: n
+	 */
+	public int size() {
+		return MAX_LENGTH;
+	}
+
+	/* Counts the conflicts of a board in one pass over the diagonals.
+	 *
+	 * @param: column of the queen per row
+	 * @return: number of conflicts
+	 */
+	public long evaluate(int[] permutation) {
+		long conflicts = 0;
+
+		Arrays.fill(diagonals, 0);
+		Arrays.fill(antiDiagonals, 0);
+		for(int i = 0; i < MAX_LENGTH; i++) {
+			diagonals[i + permutation[i]]++;
+			antiDiagonals[i - permutation[i] + MAX_LENGTH - 1]++;
+		}
+
+		for(int d = 0; d < diagonals.length; d++) {							//each queen sees the k-1 others on its diagonal
+			conflicts += (long)diagonals[d] * (diagonals[d] - 1);				//long, k(k-1) passes int range near 46341 queens
+			conflicts += (long)antiDiagonals[d] * (antiDiagonals[d] - 1);
+		}
+
+		return conflicts;
+	}
+
+	/* Computes the change in conflicts if the queens of two rows swapped columns.
+	 * Only pairs involving those two queens change, and the pair of them stays on or off a shared diagonal.
+	 *
+	 * @param: column of the queen per row
+	 * @param: first row
+	 * @param: second row
+	 * @return: conflicts after the swap minus conflicts before it
+	 */
+	public long swapDelta(int[] permutation, int i, int j) {
+		if(i == j) {
+			return 0;
+		}
+
+		int columnI = permutation[i];
+		int columnJ = permutation[j];
+		long delta = 0;
+
+		for(int k = 0; k < MAX_LENGTH; k++) {
+			if(k == i || k == j) {
+				continue;
+			}
+			int columnK = permutation[k];
+			delta += attacks(i, columnJ, k, columnK) + attacks(j, columnI, k, columnK)
+					- attacks(i, columnI, k, columnK) - attacks(j, columnJ, k, columnK);
+		}
+
+		return 2 * delta;
+	}
+
+	/* Checks if two queens share a diagonal.
+	 *
+	 * @param: row of the first queen
+	 * @param: column of the first queen
+	 * @param: row of the second queen
+	 * @param: column of the second queen
+	 * @return: 1 if they do, 0 if not
+	 */
+	private int attacks(int rowA, int columnA, int rowB, int columnB) {
+		return Math.abs(rowA - rowB) == Math.abs(columnA - columnB) ? 1 : 0;
+	}
+
+	/* Gets the target conflicts.
+	 *
+	 * @return: 0 conflicts
+	 */
+	public long target() {
+		return 0;
+	}
+}
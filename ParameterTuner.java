@@ -0,0 +1,458 @@
+/* ParameterTuner.java
+ *
+ * Tunes V_MAX, PARTICLE_COUNT, SHUFFLE_RANGE_MIN/MAX and MAX_EPOCHS of ParticleSwarmOptimization.java for one N
+ * by racing instead of TesterPSO.java's brute force grid. Every configuration gets a few runs per round,
+ * configurations that are significantly slower than the leader are dropped (one-sided Welch's t-test on time-to-solution,
+ * Bonferroni corrected over every comparison of the round so a few lucky or unlucky runs rarely decide),
+ * then, if more than half are still left, the slower half is dropped, and the runs per round double for the survivors
+ * until one is left or the budget runs out. A round the budget cuts short is not raced and its runs are discarded,
+ * so every configuration is ranked on the runs of the rounds that finished.
+ * Failed runs count as twice the time they spent (PAR2) so configurations that fail are not rewarded for failing fast.
+ *
+ * The winner is saved as a profile that ParticleSwarmOptimization.loadProfile() reads back.
+ * Every run is seeded from one master seed, logged with the results.
+ *
+ * @author: James M. Bayon-on
+ * @version: 1.0
+ */
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Properties;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+public class ParameterTuner {
+	private int MAX_LENGTH;
+	private long BUDGET;					//nanoseconds for the whole race
+	private long RUN_TIMEOUT;				//nanoseconds a single run may take before it counts as a failure
+	private int FIRST_ROUND_RUNS;			//runs per configuration in the first round
+	private double ALPHA;					//chance per round of dropping any configuration that is not really slower
+	private double FAILURE_PENALTY;			//failed runs count as this many times their elapsed time
+
+	private double[] vMaxRange;
+	private int[] particleCountRange;
+	private int[][] shuffleRange;
+	private int[] maxEpochRange;
+
+	private long masterSeed;
+	private SplittableRandom runSeeds;		//one seed per timed run
+
+	private Writer logWriter;
+	private ArrayList<Candidate> candidates;
+
+	/* One configuration in the race and the time-to-solution samples gathered for it.
+	 *
+	 */
+	private static class Candidate {
+		double vMax;
+		int particleCount;
+		int shuffleMin;
+		int shuffleMax;
+		int maxEpochs;
+
+		int runs;
+		int successes;
+		double sum;							//seconds
+		double sumSquares;
+
+		int savedRuns;						//samples at the start of the round, restored if the round is cut short
+		int savedSuccesses;
+		double savedSum;
+		double savedSumSquares;
+
+		void checkpoint() {
+			savedRuns = runs;
+			savedSuccesses = successes;
+			savedSum = sum;
+			savedSumSquares = sumSquares;
+		}
+
+		void rollback() {
+			runs = savedRuns;
+			successes = savedSuccesses;
+			sum = savedSum;
+			sumSquares = savedSumSquares;
+		}
+
+		double mean() {
+			return runs == 0 ? Double.MAX_VALUE : sum / runs;
+		}
+
+		double variance() {
+			if(runs < 2) {
+				return 0;
+			}
+			return Math.max(0, (sumSquares - sum * sum / runs) / (runs - 1));
+		}
+
+		public String toString() {
+			return "V_MAX=" + vMax + " PARTICLE_COUNT=" + particleCount + " SHUFFLE=" + shuffleMin + "-" + shuffleMax
+					+ " MAX_EPOCHS=" + maxEpochs + " runs=" + runs + " successes=" + successes
+					+ " mean seconds=" + String.format("%.4f", mean());
+		}
+	}
+
+	/* Instantiates the tuner with the default search space.
+	 *
+	 * @param: size of n
+	 * @param: budget for the whole race in seconds
+	 */
+	public ParameterTuner(int n, long budgetSeconds) {
+		MAX_LENGTH = n;
+		BUDGET = TimeUnit.SECONDS.toNanos(budgetSeconds);
+		RUN_TIMEOUT = TimeUnit.SECONDS.toNanos(10);
+		FIRST_ROUND_RUNS = 3;
+		ALPHA = 0.05;
+		FAILURE_PENALTY = 2.0;
+
+		vMaxRange = new double[] {4, 8, 12, 16, 20};
+		particleCountRange = new int[] {20, 40, 80};
+		shuffleRange = new int[][] {{4, 10}, {8, 20}, {16, 40}};
+		maxEpochRange = new int[] {1000, 5000, 10000};
+
+		logWriter = new Writer();
+		candidates = new ArrayList<Candidate>();
+		setSeed(new SplittableRandom().nextLong());
+	}
+
+	/* Sets the master seed every run seed is drawn from.
+	 *
+	 * @param: master seed
+	 */
+	public void setSeed(long masterSeed) {
+		this.masterSeed = masterSeed;
+		this.runSeeds = new SplittableRandom(masterSeed);
+	}
+
+	/* Races every configuration of the search space and saves the winner as the profile for n.
+	 *
+	 * @return: the winning configuration's profile file name, null if no configuration finished a round
+	 */
+	public String tune() {
+		long start = System.nanoTime();
+		int runsPerRound = FIRST_ROUND_RUNS;
+		int round = 0;
+		int completedRuns = 0;					//runs every survivor has had in the rounds that finished
+
+		createCandidates();
+		warmUp();
+		logWriter.add("Parameter tuning for N: " + MAX_LENGTH);
+		logWriter.add("Configurations: " + candidates.size());
+		logWriter.add("Master seed: " + masterSeed);
+		logWriter.add("");
+
+		while(candidates.size() > 1 && System.nanoTime() - start < BUDGET) {
+			round++;
+			boolean finished = true;
+			for(Candidate c: candidates) {
+				c.checkpoint();
+			}
+			for(Candidate c: candidates) {
+				for(int i = 0; i < runsPerRound && finished; i++) {
+					if(System.nanoTime() - start >= BUDGET) {
+						finished = false;
+						break;
+					}
+					run(c);
+				}
+			}
+			if(!finished) {													//uneven samples, ranking on them would favor lucky runs
+				for(Candidate c: candidates) {
+					c.rollback();
+				}
+				logWriter.add("Round " + round + ": out of budget before every configuration ran, not raced, its runs discarded");
+				break;
+			}
+
+			int roundSize = candidates.size();
+			int raced = race();
+			int halved = halve(roundSize);
+			System.out.println("round " + round + ": dropped " + raced + " by t-test, " + halved + " by halving, " + candidates.size() + " left");
+			logWriter.add("Round " + round + ": dropped " + raced + " by t-test, " + halved + " by halving, " + candidates.size() + " left");
+			completedRuns += runsPerRound;
+			runsPerRound *= 2;
+		}
+
+		Collections.sort(candidates, new Comparator<Candidate>() {
+			public int compare(Candidate a, Candidate b) {
+				return Double.compare(a.mean(), b.mean());
+			}
+		});
+		Candidate best = null;
+		for(Candidate c: candidates) {
+			if(completedRuns > 0 && c.runs >= completedRuns) {
+				best = c;
+				break;
+			}
+		}
+		if(best == null) {
+			System.out.println("Budget too small for one full round, no profile saved");
+			logWriter.add("");
+			logWriter.add("No configuration finished a round, no profile saved");
+			logWriter.writeFile("PSO-N" + MAX_LENGTH + "-tuning.txt");
+			return null;
+		}
+
+		logWriter.add("");
+		logWriter.add("Best: " + best);
+		logWriter.add("Tuning time in nanoseconds: " + (System.nanoTime() - start));
+		logWriter.writeFile("PSO-N" + MAX_LENGTH + "-tuning.txt");
+		System.out.println("Best: " + best);
+
+		return saveProfile(best);
+	}
+
+	/* Fills the race with every combination of the search space.
+	 *
+	 */
+	public void createCandidates() {
+		for(double vMax: vMaxRange) {
+			for(int particleCount: particleCountRange) {
+				for(int[] shuffle: shuffleRange) {
+					for(int maxEpochs: maxEpochRange) {
+						Candidate c = new Candidate();
+						c.vMax = vMax;
+						c.particleCount = particleCount;
+						c.shuffleMin = shuffle[0];
+						c.shuffleMax = shuffle[1];
+						c.maxEpochs = maxEpochs;
+						candidates.add(c);
+					}
+				}
+			}
+		}
+	}
+
+	/* Runs a few unrecorded solves so the JIT has compiled the PSO loop before the first timed run.
+	 *
+	 */
+	public void warmUp() {
+		for(int i = 0; i < 20; i++) {
+			ParticleSwarmOptimization pso = new ParticleSwarmOptimization(8);
+			pso.setVerbose(false);
+			pso.setMaxEpoch(1000);
+			pso.algorithm();
+		}
+	}
+
+	/* Runs one timed solve of a configuration and records its time-to-solution.
+	 *
+	 * @param: configuration to run
+	 */
+	public void run(Candidate c) {
+		ParticleSwarmOptimization pso = new ParticleSwarmOptimization(MAX_LENGTH);
+		pso.setVerbose(false);
+		pso.setVMax(c.vMax);
+		pso.setParticleCount(c.particleCount);
+		pso.setShuffleRange(c.shuffleMin, c.shuffleMax);
+		pso.setMaxEpoch(c.maxEpochs);
+		pso.setSeed(runSeeds.nextLong());
+
+		long startTime = System.nanoTime();
+		pso.setDeadline(startTime + RUN_TIMEOUT);
+		boolean found = pso.algorithm();
+		double seconds = (System.nanoTime() - startTime) / 1e9;
+
+		if(found) {
+			c.successes++;
+		} else {
+			seconds *= FAILURE_PENALTY;
+		}
+		c.runs++;
+		c.sum += seconds;
+		c.sumSquares += seconds * seconds;
+	}
+
+	/* Drops every configuration that is significantly slower than the leader.
+	 *
+	 * @return: number of configurations dropped
+	 */
+	public int race() {
+		Candidate leader = candidates.get(0);
+		for(Candidate c: candidates) {
+			if(c.mean() < leader.mean()) {
+				leader = c;
+			}
+		}
+
+		int dropped = 0;
+		double alpha = ALPHA / Math.max(1, candidates.size() - 1);			//Bonferroni, one comparison per other configuration
+		for(int i = candidates.size() - 1; i >= 0; i--) {
+			Candidate c = candidates.get(i);
+			if(c != leader && slowerProbability(c, leader) < alpha) {
+				candidates.remove(i);
+				dropped++;
+			}
+		}
+		return dropped;
+	}
+
+	/* Drops the slower half of the configurations if the race left more than half of the round's configurations.
+	 *
+	 * @param: number of configurations at the start of the round
+	 * @return: number of configurations dropped
+	 */
+	public int halve(int roundSize) {
+		int keep = Math.max(1, (roundSize + 1) / 2);
+		int dropped = 0;
+		if(candidates.size() <= keep) {
+			return 0;
+		}
+
+		Collections.sort(candidates, new Comparator<Candidate>() {
+			public int compare(Candidate a, Candidate b) {
+				return Double.compare(a.mean(), b.mean());
+			}
+		});
+		while(candidates.size() > keep) {
+			candidates.remove(candidates.size() - 1);
+			dropped++;
+		}
+		return dropped;
+	}
+
+	/* Computes the one-sided p-value of Welch's t-test for configuration a being slower than configuration b,
+	 * with the Welch-Satterthwaite degrees of freedom.
+	 *
+	 * @param: a configuration
+	 * @param: the configuration to compare with
+	 * @return: chance of a difference this large if a is not slower, 1 if there are too few runs to tell
+	 */
+	private double slowerProbability(Candidate a, Candidate b) {
+		if(a.runs < 2 || b.runs < 2) {
+			return 1;
+		}
+		double va = a.variance() / a.runs;
+		double vb = b.variance() / b.runs;
+		if(va + vb == 0) {
+			return a.mean() > b.mean() ? 0 : 1;
+		}
+		double t = (a.mean() - b.mean()) / Math.sqrt(va + vb);
+		double df = (va + vb) * (va + vb) / (va * va / (a.runs - 1) + vb * vb / (b.runs - 1));
+		return studentUpperTail(t, df);
+	}
+
+	/* Computes the chance that a Student t variable exceeds t.
+	 *
+	 * @param: t statistic
+	 * @param: degrees of freedom
+	 * @return: upper tail probability
+	 */
+	private static double studentUpperTail(double t, double df) {
+		double half = 0.5 * incompleteBeta(df / (df + t * t), df / 2, 0.5);
+		return t > 0 ? half : 1 - half;
+	}
+
+	/* Computes the regularized incomplete beta function I_x(a, b) by its continued fraction (Lentz's method).
+	 *
+	 * @param: x between 0 and 1
+	 * @param: a
+	 * @param: b
+	 * @return: I_x(a, b)
+	 */
+	private static double incompleteBeta(double x, double a, double b) {
+		if(x <= 0) {
+			return 0;
+		}
+		if(x >= 1) {
+			return 1;
+		}
+		if(x > (a + 1) / (a + b + 2)) {										//continued fraction converges on the other side
+			return 1 - incompleteBeta(1 - x, b, a);
+		}
+
+		double front = Math.exp(logGamma(a + b) - logGamma(a) - logGamma(b) + a * Math.log(x) + b * Math.log(1 - x)) / a;
+		double tiny = 1e-300;
+		double f = 1, c = 1, d = 0;
+		for(int i = 0; i <= 200; i++) {
+			int m = i / 2;
+			double numerator;
+			if(i == 0) {
+				numerator = 1;
+			} else if(i % 2 == 0) {
+				numerator = m * (b - m) * x / ((a + 2 * m - 1) * (a + 2 * m));
+			} else {
+				numerator = -((a + m) * (a + b + m) * x) / ((a + 2 * m) * (a + 2 * m + 1));
+			}
+			d = 1 + numerator * d;
+			d = Math.abs(d) < tiny ? tiny : d;
+			d = 1 / d;
+			c = 1 + numerator / c;
+			c = Math.abs(c) < tiny ? tiny : c;
+			f *= c * d;
+			if(Math.abs(1 - c * d) < 1e-12) {
+				break;
+			}
+		}
+		return front * (f - 1);
+	}
+
+	/* Computes the log of the gamma function (Lanczos approximation).
+	 *
+	 * @param: x above 0
+	 * @return: ln(gamma(x))
+	 */
+	private static double logGamma(double x) {
+		double[] coefficients = {76.18009172947146, -86.50532032941677, 24.01409824083091,
+				-1.231739572450155, 0.1208650973866179e-2, -0.5395239384953e-5};
+		double y = x;
+		double tmp = x + 5.5;
+		tmp -= (x + 0.5) * Math.log(tmp);
+		double series = 1.000000000190015;
+		for(double coefficient: coefficients) {
+			series += coefficient / ++y;
+		}
+		return -tmp + Math.log(2.5066282746310005 * series / x);
+	}
+
+	/* Saves a configuration as the tuned profile for n.
+	 *
+	 * @param: the configuration to save
+	 * @return: profile file name
+	 */
+	public String saveProfile(Candidate best) {
+		String filename = ParticleSwarmOptimization.getProfileName(MAX_LENGTH);
+		Properties profile = new Properties();
+		profile.setProperty("V_MAX", Double.toString(best.vMax));
+		profile.setProperty("PARTICLE_COUNT", Integer.toString(best.particleCount));
+		profile.setProperty("SHUFFLE_RANGE_MIN", Integer.toString(best.shuffleMin));
+		profile.setProperty("SHUFFLE_RANGE_MAX", Integer.toString(best.shuffleMax));
+		profile.setProperty("MAX_EPOCHS", Integer.toString(best.maxEpochs));
+
+		try {
+			OutputStream out = new FileOutputStream(filename);
+			try {
+				profile.store(out, "Tuned PSO parameters for N=" + MAX_LENGTH + ", " + best.runs + " runs, "
+						+ best.successes + " successes, mean seconds " + best.mean());
+			} finally {
+				out.close();
+			}
+		} catch (IOException e) {
+			System.out.println("Writing profile failed");
+		}
+		return filename;
+	}
+
+	/* Tunes the parameters for one n.
+	 * Usage: java ParameterTuner <n> [budgetSeconds] [masterSeed]
+	 *
+	 */
+	public static void main(String args[]) {
+		int n = Integer.parseInt(args[0]);
+		long budgetSeconds = args.length > 1 ? Long.parseLong(args[1]) : 3600;
+
+		ParameterTuner tuner = new ParameterTuner(n, budgetSeconds);
+		if(args.length > 2) {
+			tuner.setSeed(Long.parseLong(args[2]));
+		}
+		String profile = tuner.tune();
+		if(profile != null) {
+			System.out.println("Saved " + profile);
+		}
+	}
+}
@@ -2,6 +2,7 @@
  *
  * Particle class used by ParticleSwarmOptimization.java
  * Contains the positions of the queens in a solution as well as its conflicts, and velocity. 
+ * Positions are a permutation scored by a PermutationProblem.java, N-Queens unless another problem is given.
  * Found at http://mnemstudio.org/ai/pso/pso_tsp_java_ex1.txt
  *
  * @author: James M. Bayon-on
@@ -12,18 +13,29 @@ public class Particle  implements Comparable<Particle> {
 	private int MAX_LENGTH;
     private int data[];
     private double velocity; //fitness
-    private int conflicts; //pBest
+    private long conflicts; //pBest
+    private long fingerprint; //hash of data, kept current by setData and swap
+    private PermutationProblem problem;
 
     /* Instantiate a particle.
      *
      * @param: size of n
      */
     public Particle(int n) {
-    	MAX_LENGTH = n;
+    	this(new NQueensProblem(n));
+    }
+
+    /* Instantiate a particle for a permutation problem.
+     *
+     * @param: the problem scoring this particle
+     */
+    public Particle(PermutationProblem problem) {
+    	this.problem = problem;
+    	MAX_LENGTH = problem.size();
     	data = new int[MAX_LENGTH];
         this.velocity = 0.0;
-        this.conflicts = 0;
         initData();
+        this.conflicts = problem.evaluate(data);
     }
 
     /* Compares two particles.
@@ -31,56 +43,27 @@ public class Particle  implements Comparable<Particle> {
 	 * @param: a particle to compare with
 	 */	
     public int compareTo(Particle p) {
-    	return this.conflicts - p.getConflicts();
+    	return Long.compare(this.conflicts, p.getConflicts());
     }
 
     /* Computes the conflicts in the nxn board.
 	 *
 	 */
 	public void computeConflicts() { //compute the number of conflicts to calculate fitness
-		String board[][] = new String[MAX_LENGTH][MAX_LENGTH]; //initialize board
-		int x = 0; //row
-        int y = 0; //column
-        int tempx = 0; //temprow
-        int tempy = 0; //temcolumn
-        
-        int dx[] = new int[] {-1, 1, -1, 1}; //to check for diagonal
-        int dy[] = new int[] {-1, 1, 1, -1}; //paired with dx to check for diagonal
-        
-        boolean done = false; //used to check is checking fo diagonal is out of bounds
-        int conflicts = 0; //number of conflicts found
-        
-        clearBoard(board); //clears the board into empty strings
-        plotQueens(board); // plots the Q in the board
- 
-        // Walk through each of the Queens and compute the number of conflicts.
-        for(int i = 0; i < MAX_LENGTH; i++) {
-            x = i;
-            y = data[i];
-
-            // Check diagonals.
-            for(int j = 0; j < 4; j++) { // because of dx and dy where there are 4 directions for diagonal searching for conflicts
-                tempx = x;
-                tempy = y; // store coordinate in temp
-                done = false;
-                
-                while(!done) {//traverse the diagonals
-                    tempx += dx[j];
-                    tempy += dy[j];
-                    
-                    if((tempx < 0 || tempx >= MAX_LENGTH) || (tempy < 0 || tempy >= MAX_LENGTH)) { //if exceeds board
-                        done = true;
-                    } else {
-                        if(board[tempx][tempy].equals("Q")) {
-                            conflicts++;
-                        }
-                    }
-                }
-            }
-        }
+		this.conflicts = problem.evaluate(data); //set conflicts of this particle
+	}
 
-        this.conflicts = conflicts; //set conflicts of this particle
-        
+	/* Swaps two positions, updating the conflicts by the problem's swap delta instead of recomputing them.
+	 *
+	 * @param: first index of data
+	 * @param: second index of data
+	 */
+	public void swap(int indexA, int indexB) {
+		this.conflicts += problem.swapDelta(data, indexA, indexB);
+		this.fingerprint += mix(indexA, data[indexB]) + mix(indexB, data[indexA]) - mix(indexA, data[indexA]) - mix(indexB, data[indexB]);
+		int temp = data[indexA];
+		data[indexA] = data[indexB];
+		data[indexB] = temp;
 	}
 	
 	/* Plots the queens in the board.
@@ -110,8 +93,10 @@ public class Particle  implements Comparable<Particle> {
 	 *
 	 */
     public void initData() {
+    	fingerprint = 0;
     	for(int i = 0; i < MAX_LENGTH; i++) {
     		data[i] = i;
+    		fingerprint += mix(i, i);
     	}
     }
 
@@ -130,14 +115,51 @@ public class Particle  implements Comparable<Particle> {
 	 * @param: new position of queen
 	 */
     public void setData(int index, int value) {
+        this.fingerprint += mix(index, value) - mix(index, data[index]);
         this.data[index] = value;
     }
+
+    /* Gets the fingerprint of the particle, a hash of its positions that equal particles share.
+	 * It is the sum of a mixed hash per (index, position) pair, so one position change updates it in O(1).
+	 *
+	 * @return: fingerprint
+	 */
+    public long getFingerprint() {
+    	return this.fingerprint;
+    }
+
+    /* Checks if another particle holds the same positions.
+	 *
+	 * @param: a particle to compare with
+	 * @return: true if every position is equal
+	 */
+    public boolean sameData(Particle p) {
+    	for(int i = 0; i < MAX_LENGTH; i++) {
+    		if(this.data[i] != p.getData(i)) {
+    			return false;
+    		}
+    	}
+    	return true;
+    }
+
+    /* Hashes one (index, position) pair with the splitmix64 finalizer.
+	 *
+	 * @param: index of data
+	 * @param: position at the index
+	 * @return: mixed hash
+	 */
+    private static long mix(int index, int value) {
+    	long z = ((long)index << 32 | (value & 0xffffffffL)) * 0x9E3779B97F4A7C15L;
+    	z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+    	z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+    	return z ^ (z >>> 31);
+    }
     
     /* Gets the conflicts of the particle.
 	 *
 	 * @return: number of conflicts of the particle
 	 */
-    public int getConflicts() {
+    public long getConflicts() {
     	return this.conflicts;
     }
 
@@ -145,7 +167,7 @@ public class Particle  implements Comparable<Particle> {
 	 *
 	 * @param: new number of conflicts
 	 */
-    public void setConflicts(int conflicts) {
+    public void setConflicts(long conflicts) {
     	this.conflicts = conflicts;
     }
 
@@ -1,6 +1,7 @@
 /* ParticleSwarm.java
  *
  * Solves the N-Queens puzzle using Particle Swarm Optimization Algorithm.
+ * Any other PermutationProblem.java, such as TSPProblem.java or QAPProblem.java, can be solved the same way.
  * Code inspired by mnemstudio.org's travelling salesman problem using particle swarm optimization algorithm
  * Base code at http://mnemstudio.org/ai/pso/pso_tsp_java_ex1.txt
  *
@@ -10,9 +11,12 @@
  * @version: 1.0
  */
 
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Properties;
 import java.util.Random;
-import java.util.Collections;
 
 public class ParticleSwarmOptimization {
 	/*PSO PARAMETERS*/
@@ -20,84 +24,195 @@ public class ParticleSwarmOptimization {
 	private int PARTICLE_COUNT;			//population of particles
 	private double V_MAX; 				// Maximum velocity change allowed
 	private int MAX_EPOCHS;
-	private int TARGET; 					//0 conflicts; Number for algorithm to find.
+	private long TARGET; 					//0 conflicts; Number for algorithm to find, or beat.
+    private PermutationProblem problem;	//scores the particles, N-Queens by default
     private int SHUFFLE_RANGE_MIN;		//used for initializing particles randomly
     private int SHUFFLE_RANGE_MAX;
 
     private Random rand;
+    private Random seedSource;			//draws a fresh seed for each run when none is set
+    private boolean seeded;				//true if every run uses the seed given to setSeed()
+    private long seed;					//seed of the current run, every random draw comes from it
     private ArrayList<Particle> particles;
     private ArrayList<Particle> solutions;
     private int epoch;
+    private boolean verbose;			//prints every epoch and solution board to the console
+    private long deadline;				//System.nanoTime() after which the search gives up, 0 for none
+    private ArrayList<Particle> elites;	//known good boards to start part of the swarm from
+    private double WARM_START_FRACTION;	//share of particles started from elites instead of the diagonal
+    private FingerprintTable fingerprints;	//first particle holding each board this epoch
+    private boolean scatterDuplicates;	//scatters particles that hold the same board as a better one
+    private int duplicates;				//particles that held an earlier particle's board in the last epoch
+    private long duplicateTotal;		//duplicates summed over every epoch of the run
+    private long particleTotal;			//particles looked at over every epoch of the run
 
     /* Instantiates the particle swarm optimization algorithm along with its parameters.
 	 *
 	 * @param: size of n queens
 	 */
 	public ParticleSwarmOptimization(int n) {
-		MAX_LENGTH = n;
+		this(new NQueensProblem(n));
+	}
+
+	/* Instantiates the particle swarm optimization algorithm for any permutation problem.
+	 *
+	 * @param: the problem to solve
+	 */
+	public ParticleSwarmOptimization(PermutationProblem problem) {
+		this.problem = problem;
+		MAX_LENGTH = problem.size();
 		PARTICLE_COUNT = 40;	
 		V_MAX = 4; /* 4 8 12 16 20*/
 		MAX_EPOCHS = 5000; /* 1000 5000 10000 50000 100000*/
-		TARGET = 0;
+		TARGET = problem.target();
 		SHUFFLE_RANGE_MIN = 8;
 		SHUFFLE_RANGE_MAX = 20;
 		epoch = 0;
+		verbose = true;
+		deadline = 0;
+		seedSource = new Random();
+		seeded = false;
+		seed = 0;
+		elites = new ArrayList<Particle>();
+		WARM_START_FRACTION = 0;
+		scatterDuplicates = false;
 	}
 
 	/* Starts the particle swarm optimization algorithm solving for n queens.
 	 *
 	 */
 	public boolean algorithm() {
-		particles = new ArrayList<Particle>();
-		solutions = new ArrayList<Particle>();
-		rand = new Random();
-		epoch = 0;
 		boolean done = false;
-		Particle aParticle = null;
 
-		initialize();
+		reset();
 
 		while(!done) {
-			if(epoch < MAX_EPOCHS) {
-	            for(int i = 0; i < PARTICLE_COUNT; i++)  {
-	                aParticle = particles.get(i);
-	                aParticle.computeConflicts();
-	                if(aParticle.getConflicts() == TARGET){
-	                    done = true;
-	                }
-	            } // i
-	            
-	            Collections.sort(particles); 					// sort particles by their conflicts scores, best to worst.
-	            
-	            getVelocity();
-	            
-	            updateParticles();
-	    
-				epoch++;
-				System.out.println("epoch: " + epoch);
+			if(deadline != 0 && System.nanoTime() - deadline > 0) {	//out of time, treat as no solution found
+				done = true;
+				epoch = MAX_EPOCHS;
+			} else if(epoch < MAX_EPOCHS) {
+				done = step();
 			} else {
 				done = true;
 			}
 		}
 
-		System.out.println("done");
+		if(verbose) {
+			System.out.println("done");
+		}
 		if(epoch == MAX_EPOCHS) {
-			System.out.println("No solution found");
+			if(verbose) {
+				System.out.println("No solution found");
+			}
 			done = false;
 		}
 		
 		for(Particle p: particles) {							//prints the solutions if found within mnc
-			if(p.getConflicts() == TARGET) {
-				System.out.println("SOLUTION");
+			if(p.getConflicts() <= TARGET) {
 				solutions.add(p);
-                printSolution(p);
-                System.out.println("conflicts:"+p.getConflicts());
+				if(verbose) {
+					System.out.println("SOLUTION");
+	                printSolution(p);
+	                System.out.println("conflicts:"+p.getConflicts());
+				}
 			}
 		}
 		
 		return done;
 	}
 
+	/* Starts a new swarm of randomly placed particles without running any epochs.
+	 *
+	 */
+	public void reset() {
+		particles = new ArrayList<Particle>();
+		solutions = new ArrayList<Particle>();
+		if(!seeded) {
+			seed = seedSource.nextLong();
+		}
+		rand = new Random(seed);
+		epoch = 0;
+		fingerprints = new FingerprintTable(PARTICLE_COUNT);
+		duplicates = 0;
+		duplicateTotal = 0;
+		particleTotal = 0;
+
+		initialize();
+	}
+
+	/* Runs one epoch: checks every particle against the target, sorts them and moves each one toward its better neighbor.
+	 * Particles holding the same board as an earlier one are counted, and scattered if setScatterDuplicates() is on.
+	 *
+	 * @return: true if a particle reached the target this epoch
+	 */
+	public boolean step() {
+		boolean found = false;
+		Particle aParticle = null;
+
+		fingerprints.clear();
+		duplicates = 0;
+		for(int i = 0; i < PARTICLE_COUNT; i++)  {
+			aParticle = particles.get(i);
+			int first = fingerprints.putIfAbsent(aParticle.getFingerprint(), i);
+			if(first >= 0 && aParticle.sameData(particles.get(first))) {	//fingerprints can collide, boards cannot
+				duplicates++;
+				if(scatterDuplicates) {
+					scatter(i);
+				}
+			}
+			if(aParticle.getConflicts() <= TARGET){					//scores are kept exact by swaps, no rescoring needed
+				found = true;
+			}
+		} // i
+
+		sortParticles(); 					// sort particles by their conflicts scores, best to worst.
+
+		getVelocity();
+
+		updateParticles();
+
+		epoch++;
+		duplicateTotal += duplicates;
+		particleTotal += PARTICLE_COUNT;
+		if(verbose) {
+			System.out.println("epoch: " + epoch + " duplicates: " + duplicates);
+		}
+
+		return found;
+	}
+
+	/* Gets the particle with the fewest conflicts in the current swarm.
+	 *
+	 * @return: best particle
+	 */
+	public Particle getBestParticle() {
+		Particle best = particles.get(0);
+		for(Particle p: particles) {
+			if(p.getConflicts() < best.getConflicts()) {
+				best = p;
+			}
+		}
+		return best;
+	}
+
+	/* Replaces the worst particle in the swarm with a copy of the given queen positions.
+	 *
+	 * @param: queen positions per row, as long as n
+	 */
+	public void immigrate(int[] data) {
+		Particle worst = particles.get(0);
+		for(Particle p: particles) {
+			if(p.getConflicts() > worst.getConflicts()) {
+				worst = p;
+			}
+		}
+
+		for(int i = 0; i < MAX_LENGTH; i++) {
+			worst.setData(i, data[i]);
+		}
+		worst.computeConflicts();
+	}
+
 	/* Updates each partilce according to its velocity.
 	 *
 	 */ 
@@ -114,18 +229,34 @@ public class ParticleSwarmOptimization {
 	    	int changes = (int)Math.floor(Math.abs(destination.getVelocity()));
     		
         	for(int j = 0; j < changes; j++) {
-        		if(new Random().nextBoolean()) { //exploration
+        		if(rand.nextBoolean()) { //exploration
         			randomlyArrange(i);
         		}
         		// Push it closer to it's best neighbor.
         		copyFromParticle(source, destination); //exploitation
         	} // j
 	        
-	        // Update conflicts value.
-        	destination.computeConflicts();;
+	        // Conflicts value is kept up to date by each swap.
 	    } // i		
 	}
 	
+	/* Sorts the particles by their conflicts, best to worst, comparing the primitive scores directly.
+	 * Insertion sort, since the order changes little between epochs. Stable like Collections.sort.
+	 *
+	 */
+	public void sortParticles() {
+		for(int i = 1; i < PARTICLE_COUNT; i++) {
+			Particle aParticle = particles.get(i);
+			long conflicts = aParticle.getConflicts();
+			int j = i - 1;
+			while(j >= 0 && particles.get(j).getConflicts() > conflicts) {
+				particles.set(j + 1, particles.get(j));
+				j--;
+			}
+			particles.set(j + 1, aParticle);
+		}
+	}
+
 	/* Particle movement. Moves the data of the destination particle closer to the best particle.
 	 *
 	 * @param: particle with better standing in the sorted population
@@ -170,9 +301,7 @@ public class ParticleSwarmOptimization {
 		}
 		
 		// Switch indexB value with tempIndex value.
-		int temp = destination.getData(tempIndex);
-		destination.setData(tempIndex, destination.getData(indexB));
-		destination.setData(indexB, temp);
+		destination.swap(tempIndex, indexB);
 		
 	}
 		
@@ -207,14 +336,23 @@ public class ParticleSwarmOptimization {
 	public void initialize() {
 		int newParticleIndex = 0;
 		int shuffles = 0;
+		int warmStartCount = elites.isEmpty() ? 0 : (int)Math.round(PARTICLE_COUNT * WARM_START_FRACTION);
 		
 		for(int i = 0; i < PARTICLE_COUNT; i++) {
-	        Particle newParticle = new Particle(MAX_LENGTH);
+	        Particle newParticle = new Particle(problem);
 	   
 	        particles.add(newParticle);
 	        newParticleIndex = particles.indexOf(newParticle);
 	        
-	        shuffles = getRandomNumber(SHUFFLE_RANGE_MIN, SHUFFLE_RANGE_MAX);
+	        if(i < warmStartCount) {									//start from an elite, lightly mutated to keep diversity
+	        	Particle elite = elites.get(i % elites.size());
+	        	for(int j = 0; j < MAX_LENGTH; j++) {
+	        		newParticle.setData(j, elite.getData(j));
+	        	}
+	        	shuffles = getRandomNumber(1, SHUFFLE_RANGE_MIN);
+	        } else {
+	        	shuffles = getRandomNumber(SHUFFLE_RANGE_MIN, SHUFFLE_RANGE_MAX);
+	        }
 	        
 	        for(int j = 0; j < shuffles; j++) {
 	        	randomlyArrange(newParticleIndex);
@@ -224,6 +362,18 @@ public class ParticleSwarmOptimization {
 	    } // i		
 	}
 
+	/* Scatters a particle with as many random swaps as a freshly initialized one, then rescores it.
+	 *
+	 * @param: index of the particle
+	 */
+	public void scatter(int index) {
+		int shuffles = getRandomNumber(SHUFFLE_RANGE_MIN, SHUFFLE_RANGE_MAX);
+		for(int j = 0; j < shuffles; j++) {
+			randomlyArrange(index);
+		}
+		particles.get(index).computeConflicts();
+	}
+
 	/* Changes a position of the queens in a particle by swapping a randomly selected position
 	 *
 	 * @param: index of the particle
@@ -231,10 +381,7 @@ public class ParticleSwarmOptimization {
 	public void randomlyArrange(int index) { //randomly swap 2 positions
 		int positionA = getRandomNumber(0, MAX_LENGTH - 1);
 		int positionB = getExclusiveRandomNumber(MAX_LENGTH - 1, positionA);
-		Particle thisParticle = particles.get(index);
-		int temp = thisParticle.getData(positionA);
-		thisParticle.setData(positionA, thisParticle.getData(positionB));
-		thisParticle.setData(positionB, temp);		
+		particles.get(index).swap(positionA, positionB);
 	}
 
 	/* Gets a random number in the range of the parameters
@@ -313,6 +460,14 @@ public class ParticleSwarmOptimization {
 	public int getEpoch() {
 		return epoch;
 	}
+	/* gets a particle of the current swarm
+	 *
+	 * @param: index of the particle
+	 * @return: particle
+	 */
+	public Particle getParticle(int index) {
+		return particles.get(index);
+	}
 	/* gets the population size
 	 *
 	 * @return: pop size
@@ -374,4 +529,161 @@ public class ParticleSwarmOptimization {
 	public void setVMax(double newMaxVelocity) {
 		this.V_MAX = newMaxVelocity;
 	}
+
+	/* sets whether the algorithm prints its progress and solutions to the console
+	 *
+	 * @param: true to print, false to run quietly
+	 */
+	public void setVerbose(boolean verbose) {
+		this.verbose = verbose;
+	}
+
+	/* sets the deadline after which algorithm() gives up and returns false
+	 *
+	 * @param: deadline in System.nanoTime() units, 0 for no deadline
+	 */
+	public void setDeadline(long deadline) {
+		this.deadline = deadline;
+	}
+
+	/* sets the particle count
+	 *
+	 * @param: new particle count
+	 */
+	public void setParticleCount(int newParticleCount) {
+		this.PARTICLE_COUNT = newParticleCount;
+	}
+
+	/* sets the range of random swaps used to initialize each particle
+	 *
+	 * @param: new min shuffle
+	 * @param: new max shuffle
+	 */
+	public void setShuffleRange(int newShuffleMin, int newShuffleMax) {
+		this.SHUFFLE_RANGE_MIN = newShuffleMin;
+		this.SHUFFLE_RANGE_MAX = newShuffleMax;
+	}
+
+	/* Gets the file name of the tuned profile for a size of n, as saved by ParameterTuner.java.
+	 *
+	 * @param: size of n
+	 * @return: profile file name
+	 */
+	public static String getProfileName(int n) {
+		return "PSO-N" + n + "-profile.properties";
+	}
+
+	/* Loads tuned parameters from a profile file. Parameters missing from the file are left unchanged.
+	 *
+	 * @param: a profile file name
+	 * @return: true if the profile was loaded
+	 */
+	public boolean loadProfile(String filename) {
+		Properties profile = new Properties();
+		try {
+			InputStream in = new FileInputStream(filename);
+			try {
+				profile.load(in);
+			} finally {
+				in.close();
+			}
+
+			int particleCount = Integer.parseInt(profile.getProperty("PARTICLE_COUNT", Integer.toString(PARTICLE_COUNT)));
+			double maxVelocity = Double.parseDouble(profile.getProperty("V_MAX", Double.toString(V_MAX)));
+			int maxEpochs = Integer.parseInt(profile.getProperty("MAX_EPOCHS", Integer.toString(MAX_EPOCHS)));
+			int shuffleMin = Integer.parseInt(profile.getProperty("SHUFFLE_RANGE_MIN", Integer.toString(SHUFFLE_RANGE_MIN)));
+			int shuffleMax = Integer.parseInt(profile.getProperty("SHUFFLE_RANGE_MAX", Integer.toString(SHUFFLE_RANGE_MAX)));
+
+			PARTICLE_COUNT = particleCount;								//apply only once every value parsed
+			V_MAX = maxVelocity;
+			MAX_EPOCHS = maxEpochs;
+			SHUFFLE_RANGE_MIN = shuffleMin;
+			SHUFFLE_RANGE_MAX = shuffleMax;
+		} catch (IOException e) {
+			return false;
+		} catch (NumberFormatException e) {
+			System.out.println("Bad profile " + filename);
+			return false;
+		}
+		return true;
+	}
+
+	/* Starts part of the swarm from known good boards instead of the diagonal, e.g. elites from SolutionCache.java.
+	 *
+	 * @param: boards of size n to start from
+	 * @param: fraction of the particles to start from them
+	 */
+	public void setWarmStart(ArrayList<Particle> newElites, double fraction) {
+		this.elites = new ArrayList<Particle>();
+		for(Particle p: newElites) {
+			if(p.getMaxLength() == MAX_LENGTH) {
+				this.elites.add(p);
+			}
+		}
+		this.WARM_START_FRACTION = fraction;
+	}
+
+	/* sets the conflicts at which the algorithm stops, e.g. a known optimum of a TSPProblem
+	 *
+	 * @param: new target
+	 */
+	public void setTarget(long newTarget) {
+		this.TARGET = newTarget;
+	}
+
+	/* gets the problem being solved
+	 *
+	 * @return: problem
+	 */
+	public PermutationProblem getProblem() {
+		return problem;
+	}
+
+	/* sets the seed of every following run so it can be reproduced exactly
+	 *
+	 * @param: new seed
+	 */
+	public void setSeed(long newSeed) {
+		this.seed = newSeed;
+		this.seeded = true;
+	}
+
+	/* goes back to drawing a fresh seed for each run
+	 *
+	 */
+	public void clearSeed() {
+		this.seeded = false;
+	}
+
+	/* gets the seed of the current or last run, to log it and replay the run with setSeed()
+	 *
+	 * @return: seed
+	 */
+	public long getSeed() {
+		return seed;
+	}
+
+	/* sets whether particles holding the same board as an earlier particle are scattered to restore diversity
+	 *
+	 * @param: true to scatter duplicates, false to only count them
+	 */
+	public void setScatterDuplicates(boolean scatterDuplicates) {
+		this.scatterDuplicates = scatterDuplicates;
+	}
+
+	/* gets the number of particles that held an earlier particle's board in the last epoch
+	 *
+	 * @return: duplicates
+	 */
+	public int getDuplicates() {
+		return duplicates;
+	}
+
+	/* gets the share of particles that were duplicates, averaged over every epoch of the current or last run
+	 *
+	 * @return: duplicate rate between 0 and 1
+	 */
+	public double getDuplicateRate() {
+		return particleTotal == 0 ? 0 : (double)duplicateTotal / particleTotal;
+	}
 }
\ No newline at end of file
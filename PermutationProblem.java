@@ -0,0 +1,42 @@
+/* PermutationProblem.java
+ *
+ * A problem whose candidate solutions are permutations of 0..n-1, solved by ParticleSwarmOptimization.java.
+ * Fitness is a primitive long where lower is better. swapDelta lets the swarm keep a particle's fitness up to date
+ * after each swap without scoring the whole permutation again.
+ *
+ * Implementations: NQueensProblem.java, TSPProblem.java, QAPProblem.java
+ *
+ * @author: James M. Bayon-on
+ * @version: 1.0
+ */
+
+public interface PermutationProblem {
+
+	/* Gets the length of the permutations.
+	 *
+	 * @return: n
+	 */
+	public int size();
+
+	/* Scores a whole permutation.
+	 *
+	 * @param: a permutation of 0..n-1
+	 * @return: fitness, lower is better
+	 */
+	public long evaluate(int[] permutation);
+
+	/* Computes how the fitness would change if two positions of the permutation were swapped. The permutation is not changed.
+	 *
+	 * @param: a permutation of 0..n-1
+	 * @param: first position
+	 * @param: second position
+	 * @return: fitness after the swap minus fitness before it
+	 */
+	public long swapDelta(int[] permutation, int i, int j);
+
+	/* Gets the fitness at which the search can stop.
+	 *
+	 * @return: target fitness, Long.MIN_VALUE if the optimum is not known and the search should run every epoch
+	 */
+	public long target();
+}
@@ -0,0 +1,98 @@
+/* QAPProblem.java
+ *
+ * Quadratic assignment problem as a permutation problem. Position a of the permutation is the location
+ * facility a is placed at. Fitness is the sum over every pair of facilities of their flow times the distance
+ * between their locations. Flow and distance matrices may be asymmetric.
+ *
+ * @author: James M. Bayon-on
+ * @version: 1.0
+ */
+
+public class QAPProblem implements PermutationProblem {
+	private int MAX_LENGTH;
+	private int flows[][];
+	private int distances[][];
+	private long TARGET;
+
+	/* Instantiates the problem.
+	 *
+	 * @param: flows[a][b] is the flow from facility a to facility b
+	 * @param: distances[x][y] is the distance from location x to location y
+	 */
+	public QAPProblem(int[][] flows, int[][] distances) {
+		MAX_LENGTH = flows.length;
+		this.flows = flows;
+		this.distances = distances;
+		TARGET = Long.MIN_VALUE;
+	}
+
+	/* Gets the number of facilities.
+	 *
+	 * @return: n
+	 */
+	public int size() {
+		return MAX_LENGTH;
+	}
+
+	/* Scores a whole assignment.
+	 *
+	 * @param: location per facility
+	 * @return: total flow times distance
+	 */
+	public long evaluate(int[] permutation) {
+		long cost = 0;
+		for(int a = 0; a < MAX_LENGTH; a++) {
+			int[] flowsA = flows[a];
+			int[] distancesA = distances[permutation[a]];
+			for(int b = 0; b < MAX_LENGTH; b++) {
+				cost += (long)flowsA[b] * distancesA[permutation[b]];
+			}
+		}
+		return cost;
+	}
+
+	/* Computes the change in cost if two facilities swapped locations, touching only the rows and columns of those two.
+	 *
+	 * @param: location per facility
+	 * @param: first facility
+	 * @param: second facility
+	 * @return: cost after the swap minus cost before it
+	 */
+	public long swapDelta(int[] permutation, int r, int s) {
+		if(r == s) {
+			return 0;
+		}
+
+		int pr = permutation[r];
+		int ps = permutation[s];
+		long delta = (long)(flows[r][r] - flows[s][s]) * (distances[ps][ps] - distances[pr][pr])
+				+ (long)(flows[r][s] - flows[s][r]) * (distances[ps][pr] - distances[pr][ps]);
+
+		for(int k = 0; k < MAX_LENGTH; k++) {
+			if(k == r || k == s) {
+				continue;
+			}
+			int pk = permutation[k];
+			delta += (long)(flows[k][r] - flows[k][s]) * (distances[pk][ps] - distances[pk][pr])
+					+ (long)(flows[r][k] - flows[s][k]) * (distances[ps][pk] - distances[pr][pk]);
+		}
+
+		return delta;
+	}
+
+	/* Gets the cost at which the search can stop.
+	 *
+	 * @return: target cost, Long.MIN_VALUE unless set
+	 */
+	public long target() {
+		return TARGET;
+	}
+
+	/* Sets a cost that is good enough to stop the search, e.g. a known optimum.
+	 *
+	 * @param: target cost
+	 */
+	public void setTarget(long target) {
+		this.TARGET = target;
+	}
+}
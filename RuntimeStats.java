@@ -0,0 +1,246 @@
+/* RuntimeStats.java
+ *
+ * Streaming statistics for time-to-solution or epochs-to-solution in constant memory.
+ * Values go into a log-bucketed histogram in the style of HdrHistogram: exact below 128, and above that
+ * 128 buckets per power of two, so every percentile is within 1% of the recorded value.
+ * Keeps success rate, mean and standard deviation (Welford) alongside, with 95% confidence intervals.
+ *
+ * Collectors from different threads or different sweep cells can be merged into one.
+ *
+ * @author: James M. Bayon-on
+ * @version: 1.0
+ */
+
+public class RuntimeStats {
+	private static final int SUB_BUCKET_BITS = 7;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+	private static final double Z_95 = 1.96;
+
+	private String name;
+	private long counts[];
+	private long count;						//successful values recorded
+	private long failures;
+	private long min;
+	private long max;
+	private double mean;
+	private double m2;						//sum of squared differences from the mean
+
+	/* Instantiates an empty collector.
+	 *
+	 * @param: name used in the summary, e.g. "time in nanoseconds"
+	 */
+	public RuntimeStats(String name) {
+		this.name = name;
+		counts = new long[BUCKET_COUNT];
+		count = 0;
+		failures = 0;
+		min = Long.MAX_VALUE;
+		max = 0;
+		mean = 0;
+		m2 = 0;
+	}
+
+	/* Records the value of a successful run.
+	 *
+	 * @param: a non-negative value
+	 */
+	public synchronized void record(long value) {
+		if(value < 0) {
+			value = 0;
+		}
+		counts[bucketIndex(value)]++;
+		count++;
+		min = Math.min(min, value);
+		max = Math.max(max, value);
+
+		double delta = value - mean;
+		mean += delta / count;
+		m2 += delta * (value - mean);
+	}
+
+	/* Records a failed run, which counts toward the success rate but has no value.
+	 *
+	 */
+	public synchronized void recordFailure() {
+		failures++;
+	}
+
+	/* Adds everything another collector has recorded to this one.
+	 *
+	 * @param: collector to merge in, left unchanged
+	 */
+	public void merge(RuntimeStats other) {
+		long otherCounts[];
+		long otherCount, otherFailures, otherMin, otherMax;
+		double otherMean, otherM2;
+		synchronized(other) {												//snapshot first so two merges never hold both locks
+			otherCounts = other.counts.clone();
+			otherCount = other.count;
+			otherFailures = other.failures;
+			otherMin = other.min;
+			otherMax = other.max;
+			otherMean = other.mean;
+			otherM2 = other.m2;
+		}
+
+		synchronized(this) {
+			for(int i = 0; i < BUCKET_COUNT; i++) {
+				counts[i] += otherCounts[i];
+			}
+			failures += otherFailures;
+			if(otherCount == 0) {
+				return;
+			}
+
+			long total = count + otherCount;
+			double delta = otherMean - mean;
+			mean += delta * otherCount / total;
+			m2 += otherM2 + delta * delta * ((double)count * otherCount / total);
+			count = total;
+			min = Math.min(min, otherMin);
+			max = Math.max(max, otherMax);
+		}
+	}
+
+	/* Gets the bucket a value falls in.
+	 *
+	 * @param: a non-negative value
+	 * @return: bucket index
+	 */
+	private static int bucketIndex(long value) {
+		if(value < SUB_BUCKET_COUNT) {
+			return (int)value;
+		}
+		int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+		int subBucket = (int)(value >>> shift);								//between SUB_BUCKET_COUNT and 2 * SUB_BUCKET_COUNT - 1
+		return (shift + 1) * SUB_BUCKET_COUNT + subBucket - SUB_BUCKET_COUNT;
+	}
+
+	/* Gets the highest value that falls in a bucket.
+	 *
+	 * @param: bucket index
+	 * @return: highest value of the bucket
+	 */
+	private static long bucketHighest(int index) {
+		if(index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+		int shift = index / SUB_BUCKET_COUNT - 1;
+		long subBucket = index % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+		long highest = ((subBucket + 1) << shift) - 1;
+		return highest < 0 ? Long.MAX_VALUE : highest;						//top bucket ends at Long.MAX_VALUE
+	}
+
+	/* Gets a percentile of the successful values.
+	 *
+	 * @param: percentile between 0 and 100
+	 * @return: value at the percentile, 0 if nothing was recorded
+	 */
+	public synchronized long percentile(double percentile) {
+		if(count == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long)Math.ceil(percentile / 100.0 * count));
+		long seen = 0;
+		for(int i = 0; i < BUCKET_COUNT; i++) {
+			seen += counts[i];
+			if(seen >= rank) {
+				return Math.max(min, Math.min(max, bucketHighest(i)));
+			}
+		}
+		return max;
+	}
+
+	/* gets the number of successful values recorded
+	 *
+	 * @return: count
+	 */
+	public synchronized long getCount() {
+		return count;
+	}
+
+	/* gets the number of failed runs recorded
+	 *
+	 * @return: failures
+	 */
+	public synchronized long getFailures() {
+		return failures;
+	}
+
+	/* gets the smallest successful value
+	 *
+	 * @return: min, 0 if nothing was recorded
+	 */
+	public synchronized long getMin() {
+		return count == 0 ? 0 : min;
+	}
+
+	/* gets the largest successful value
+	 *
+	 * @return: max
+	 */
+	public synchronized long getMax() {
+		return max;
+	}
+
+	/* gets the mean of the successful values
+	 *
+	 * @return: mean
+	 */
+	public synchronized double getMean() {
+		return mean;
+	}
+
+	/* gets the sample standard deviation of the successful values
+	 *
+	 * @return: standard deviation, 0 with fewer than two values
+	 */
+	public synchronized double getStdDev() {
+		return count < 2 ? 0 : Math.sqrt(m2 / (count - 1));
+	}
+
+	/* gets the half width of the 95% confidence interval of the mean
+	 *
+	 * @return: mean plus or minus this
+	 */
+	public synchronized double getMeanError() {
+		return count < 2 ? 0 : Z_95 * getStdDev() / Math.sqrt(count);
+	}
+
+	/* gets the share of runs that succeeded
+	 *
+	 * @return: success rate between 0 and 1
+	 */
+	public synchronized double getSuccessRate() {
+		long runs = count + failures;
+		return runs == 0 ? 0 : (double)count / runs;
+	}
+
+	/* Gets the 95% Wilson confidence interval of the success rate, which stays sensible near 0 and 1.
+	 *
+	 * @return: lower and upper bound
+	 */
+	public synchronized double[] getSuccessRateInterval() {
+		long runs = count + failures;
+		if(runs == 0) {
+			return new double[] {0, 1};
+		}
+		double p = (double)count / runs;
+		double z2 = Z_95 * Z_95;
+		double centre = (p + z2 / (2 * runs)) / (1 + z2 / runs);
+		double margin = Z_95 * Math.sqrt(p * (1 - p) / runs + z2 / (4.0 * runs * runs)) / (1 + z2 / runs);
+		return new double[] {Math.max(0, centre - margin), Math.min(1, centre + margin)};
+	}
+
+	/* Summarizes the distribution in one line.
+	 *
+	 * @return: summary
+	 */
+	public synchronized String summary() {
+		double[] rate = getSuccessRateInterval();
+		return String.format("%s: runs %d, success rate %.1f%% [%.1f%%, %.1f%%], mean %.0f +/- %.0f, p50 %d, p90 %d, p99 %d, max %d",
+				name, count + failures, 100 * getSuccessRate(), 100 * rate[0], 100 * rate[1], mean, getMeanError(),
+				percentile(50), percentile(90), percentile(99), getMax());
+	}
+}
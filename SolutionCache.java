@@ -0,0 +1,289 @@
+/* SolutionCache.java
+ *
+ * On-disk store of solutions and near-solutions indexed by N, kept in a memory-mapped file.
+ * Each N keeps its few best distinct boards. Repeat requests can be answered from the store right away,
+ * and the stored boards can seed part of a fresh swarm through ParticleSwarmOptimization.setWarmStart().
+ *
+ * The file is capped at a fixed size. When a new board does not fit, the least recently used N is evicted.
+ * The boards are held in an index on the heap; the mapped file is its persistent copy, rewritten in full on every
+ * stored board, and is only read back by open(). Records are checked and rescored on load.
+ * File layout: magic, record count, then records of n, conflicts (long) and n queen positions, least recently used first.
+ *
+ * @author: James M. Bayon-on
+ * @version: 1.0
+ */
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class SolutionCache {
+	private static final int MAGIC = 0x50534f44;	//"PSOD", conflicts stored as long
+	private static final int HEADER_BYTES = 8;
+
+	private String filename;
+	private int CAPACITY;					//bytes of the mapped file
+	private int ELITES_PER_N;				//boards kept for each n
+
+	private RandomAccessFile file;
+	private MappedByteBuffer buffer;
+	private LinkedHashMap<Integer, ArrayList<Particle>> entries;	//access ordered, eldest n first
+	private int usedBytes;
+
+	/* Instantiates the cache. Call open() before using it.
+	 *
+	 * @param: cache file name
+	 * @param: size cap of the file in bytes
+	 * @param: boards kept for each n
+	 */
+	public SolutionCache(String filename, int capacity, int elitesPerN) {
+		this.filename = filename;
+		CAPACITY = capacity;
+		ELITES_PER_N = elitesPerN;
+		entries = new LinkedHashMap<Integer, ArrayList<Particle>>(16, 0.75f, true);
+		usedBytes = HEADER_BYTES;
+	}
+
+	/* Maps the cache file and loads the boards already stored in it. A missing or unreadable file starts empty.
+	 *
+	 */
+	public synchronized void open() throws IOException {
+		file = new RandomAccessFile(filename, "rw");
+		buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, CAPACITY);
+
+		try {
+			if(buffer.getInt(0) == MAGIC) {
+				buffer.position(4);
+				int records = buffer.getInt();
+				for(int r = 0; r < records; r++) {
+					int n = buffer.getInt();
+					buffer.getLong();										//stored conflicts are not trusted, rescored below
+					if(n <= 0 || n > (CAPACITY - HEADER_BYTES) / 4) {
+						throw new BufferUnderflowException();
+					}
+					int data[] = new int[n];
+					for(int i = 0; i < n; i++) {
+						data[i] = buffer.getInt();
+					}
+					if(!isPermutation(data)) {
+						System.out.println("Cache record for N: " + n + " is not a board, skipped");
+						continue;
+					}
+					Particle p = new Particle(n);
+					for(int i = 0; i < n; i++) {
+						p.setData(i, data[i]);
+					}
+					p.computeConflicts();
+					add(p);
+				}
+			}
+		} catch (BufferUnderflowException e) {
+			System.out.println("Cache file damaged, starting empty");
+			entries.clear();
+			usedBytes = HEADER_BYTES;
+		}
+		write();
+	}
+
+	/* Checks that every queen position is within the board and no two queens share a column.
+	 *
+	 * @param: queen positions per row
+	 * @return: true if the positions are a permutation of 0 to n - 1
+	 */
+	private boolean isPermutation(int[] data) {
+		boolean seen[] = new boolean[data.length];
+		for(int value: data) {
+			if(value < 0 || value >= data.length || seen[value]) {
+				return false;
+			}
+			seen[value] = true;
+		}
+		return true;
+	}
+
+	/* Gets a stored solution for n.
+	 *
+	 * @param: size of n
+	 * @return: a copy of a solution with zero conflicts, null if none is stored
+	 */
+	public synchronized Particle getSolution(int n) {
+		ArrayList<Particle> elites = entries.get(n);
+		if(elites == null || elites.get(0).getConflicts() != 0) {
+			return null;
+		}
+		return copyOf(elites.get(0));
+	}
+
+	/* Gets the stored boards for n, best first.
+	 *
+	 * @param: size of n
+	 * @return: copies of the stored boards, empty if none are stored
+	 */
+	public synchronized ArrayList<Particle> getElites(int n) {
+		ArrayList<Particle> copies = new ArrayList<Particle>();
+		ArrayList<Particle> elites = entries.get(n);
+		if(elites != null) {
+			for(Particle p: elites) {
+				copies.add(copyOf(p));
+			}
+		}
+		return copies;
+	}
+
+	/* Stores a board if it is new and among the best for its n, evicting least recently used n to stay under the cap.
+	 *
+	 * @param: a scored board
+	 * @return: true if the board was stored
+	 */
+	public synchronized boolean offer(Particle p) {
+		if(!add(copyOf(p))) {
+			return false;
+		}
+		write();
+		return true;
+	}
+
+	/* Adds a board to the in-memory index, keeping each n sorted best first and within its limits.
+	 *
+	 * @param: a scored board owned by the cache
+	 * @return: true if the board was kept
+	 */
+	private boolean add(Particle p) {
+		int n = p.getMaxLength();
+		int recordBytes = 12 + 4 * n;
+		if(p.getConflicts() < 0 || HEADER_BYTES + recordBytes > CAPACITY) {		//conflicts are never negative
+			return false;
+		}
+
+		ArrayList<Particle> elites = entries.get(n);
+		if(elites == null) {
+			elites = new ArrayList<Particle>();
+			entries.put(n, elites);
+		}
+		for(Particle e: elites) {
+			if(sameBoard(e, p)) {
+				return false;
+			}
+		}
+		if(elites.size() >= ELITES_PER_N && elites.get(elites.size() - 1).getConflicts() <= p.getConflicts()) {
+			return false;
+		}
+
+		int index = 0;
+		while(index < elites.size() && elites.get(index).getConflicts() <= p.getConflicts()) {
+			index++;
+		}
+		elites.add(index, p);
+		usedBytes += recordBytes;
+		if(elites.size() > ELITES_PER_N) {
+			elites.remove(elites.size() - 1);
+			usedBytes -= recordBytes;
+		}
+
+		Iterator<Map.Entry<Integer, ArrayList<Particle>>> eldest = entries.entrySet().iterator();
+		while(usedBytes > CAPACITY) {										//evict least recently used n, then trim this n
+			Map.Entry<Integer, ArrayList<Particle>> entry = eldest.next();
+			if(entry.getKey() == n) {
+				while(usedBytes > CAPACITY) {
+					elites.remove(elites.size() - 1);
+					usedBytes -= recordBytes;
+				}
+			} else {
+				usedBytes -= entry.getValue().size() * (12 + 4 * entry.getKey());
+				eldest.remove();
+			}
+		}
+		return elites.contains(p);
+	}
+
+	/* Rewrites the mapped file from the in-memory index, least recently used n first.
+	 * The magic is cleared before any record is overwritten and set again last, so a process that dies part way
+	 * leaves a file that open() treats as empty rather than a mix of old and new records.
+	 *
+	 */
+	private void write() {
+		int records = 0;
+		buffer.putInt(0, 0);
+		try {
+			buffer.position(HEADER_BYTES);
+			for(Map.Entry<Integer, ArrayList<Particle>> entry: entries.entrySet()) {
+				for(Particle p: entry.getValue()) {
+					buffer.putInt(p.getMaxLength());
+					buffer.putLong(p.getConflicts());
+					for(int i = 0; i < p.getMaxLength(); i++) {
+						buffer.putInt(p.getData(i));
+					}
+					records++;
+				}
+			}
+		} catch (BufferOverflowException e) {
+			System.out.println("Cache over capacity, writing failed");
+		}
+		buffer.putInt(4, records);
+		buffer.putInt(0, MAGIC);
+	}
+
+	/* Flushes the mapped file to disk and closes it.
+	 *
+	 */
+	public synchronized void close() throws IOException {
+		write();
+		buffer.force();
+		file.close();
+	}
+
+	/* Compares the queen positions of two boards.
+	 *
+	 * @param: a board
+	 * @param: another board
+	 * @return: true if both boards place every queen the same
+	 */
+	public boolean sameBoard(Particle a, Particle b) {
+		if(a.getMaxLength() != b.getMaxLength()) {
+			return false;
+		}
+		for(int i = 0; i < a.getMaxLength(); i++) {
+			if(a.getData(i) != b.getData(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/* Copies a board so callers cannot change what the cache holds.
+	 *
+	 * @param: a board
+	 * @return: the copy
+	 */
+	public Particle copyOf(Particle p) {
+		Particle copy = new Particle(p.getMaxLength());
+		for(int i = 0; i < p.getMaxLength(); i++) {
+			copy.setData(i, p.getData(i));
+		}
+		copy.setConflicts(p.getConflicts());
+		return copy;
+	}
+
+	/* gets the bytes the stored boards take in the file
+	 *
+	 * @return: used bytes
+	 */
+	public synchronized int getUsedBytes() {
+		return usedBytes;
+	}
+
+	/* gets the number of n with boards stored
+	 *
+	 * @return: stored n count
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+}
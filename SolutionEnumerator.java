@@ -0,0 +1,278 @@
+/* SolutionEnumerator.java
+ *
+ * Finds many distinct N-Queens solutions with one ParticleSwarmOptimization.java swarm.
+ * The swarm keeps running after a hit. Every solution found becomes tabu, and any particle that lands on a tabu
+ * board is scattered with random swaps so the swarm is pushed toward solutions it has not found yet.
+ * A swarm that goes MAX_EPOCHS without a new solution is restarted, keeping the tabu list.
+ *
+ * Solutions are handed to a consumer as soon as they are found, or through a Stream backed by a bounded queue
+ * so a slow reader holds the search back instead of letting solutions pile up.
+ * With setSeed() every swarm is seeded from one master seed, so the same solutions come out in the same order.
+ *
+ * @author: James M. Bayon-on
+ * @version: 1.0
+ */
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+public class SolutionEnumerator {
+	private int MAX_LENGTH;
+	private int QUEUE_CAPACITY;				//solutions a Stream buffers ahead of its reader
+	private ParticleSwarmOptimization pso;
+	private SplittableRandom swarmSeeds;	//one seed per swarm started, null for fresh seeds
+	private HashSet<String> tabu;			//boards already found
+	private volatile boolean stopped;
+	private int searchCount;				//distinct solutions found by the last search
+	private long startTime;
+	private long endTime;
+
+	/* Instantiates the enumerator.
+	 *
+	 * @param: size of n
+	 */
+	public SolutionEnumerator(int n) {
+		MAX_LENGTH = n;
+		QUEUE_CAPACITY = 16;
+		pso = new ParticleSwarmOptimization(n);
+		pso.setVerbose(false);
+		swarmSeeds = null;
+		tabu = new HashSet<String>();
+		stopped = false;
+		searchCount = 0;
+		startTime = 0;
+		endTime = 0;
+	}
+
+	/* Searches for distinct solutions, handing each one to the consumer as soon as it is found.
+	 * The consumer runs on the searching thread, so the search waits while it works.
+	 *
+	 * @param: stop after this many distinct solutions
+	 * @param: stop after this many milliseconds
+	 * @param: receives queen positions per row of each new solution
+	 * @return: number of distinct solutions found
+	 */
+	public int enumerate(int maxSolutions, long timeoutMillis, Consumer<int[]> consumer) {
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+		int count = 0;
+		int lastFound = 0;
+
+		stopped = false;
+		searchCount = 0;
+		startTime = System.nanoTime();
+		restart();
+
+		while(!stopped && count < maxSolutions && System.nanoTime() - deadline < 0) {
+			if(pso.getEpoch() - lastFound >= pso.getMaxEpoch()) {				//stagnant, start a fresh swarm
+				restart();
+				lastFound = 0;
+			}
+
+			pso.step();
+
+			for(int i = 0; i < pso.getPopSize() && count < maxSolutions && !stopped; i++) {
+				Particle p = pso.getParticle(i);
+				if(p.getConflicts() != 0) {
+					continue;
+				}
+				if(tabu.add(boardKey(p))) {
+					count++;
+					searchCount = count;
+					lastFound = pso.getEpoch();
+					consumer.accept(toArray(p));
+				}
+				pso.scatter(i);												//tabu, push it away from this solution
+			}
+		}
+
+		endTime = System.nanoTime();
+		return count;
+	}
+
+	/* Searches for distinct solutions on a background thread and streams them to the caller.
+	 * Closing the stream stops the search.
+	 *
+	 * @param: stop after this many distinct solutions
+	 * @param: stop after this many milliseconds
+	 * @return: stream of queen positions per row of each new solution
+	 */
+	public Stream<int[]> stream(final int maxSolutions, final long timeoutMillis) {
+		final ArrayBlockingQueue<int[]> queue = new ArrayBlockingQueue<int[]>(QUEUE_CAPACITY);
+		final int[] end = new int[0];
+
+		final Thread producer = new Thread(new Runnable() {
+			public void run() {
+				try {
+					enumerate(maxSolutions, timeoutMillis, new Consumer<int[]>() {
+						public void accept(int[] solution) {
+							try {
+								queue.put(solution);								//blocks while the reader is behind
+							} catch (InterruptedException e) {
+								stop();
+								Thread.currentThread().interrupt();				//any later put fails at once instead of blocking
+							}
+						}
+					});
+				} finally {
+					try {
+						queue.put(end);											//waits for the reader, a full queue is normal
+					} catch (InterruptedException e) {
+						//stream closed, nobody is left to read the end
+					}
+				}
+			}
+		}, "solution-enumerator");
+		producer.setDaemon(true);
+		producer.start();
+
+		Iterator<int[]> solutions = new Iterator<int[]>() {
+			private int[] next = null;
+
+			public boolean hasNext() {
+				if(next == null) {
+					try {
+						next = queue.take();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						next = end;
+					}
+				}
+				return next != end;
+			}
+
+			public int[] next() {
+				if(!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				int[] solution = next;
+				next = null;
+				return solution;
+			}
+		};
+
+		Stream<int[]> stream = StreamSupport.stream(Spliterators.spliteratorUnknownSize(solutions,
+				Spliterator.ORDERED | Spliterator.NONNULL), false);
+		return stream.onClose(new Runnable() {
+			public void run() {
+				stop();
+				producer.interrupt();
+			}
+		});
+	}
+
+	/* Starts a fresh swarm, seeded from the master seed if one is set.
+	 *
+	 */
+	private void restart() {
+		if(swarmSeeds != null) {
+			pso.setSeed(swarmSeeds.nextLong());
+		}
+		pso.reset();
+	}
+
+	/* Seeds every swarm the enumerator starts from one master seed.
+	 *
+	 * @param: master seed
+	 */
+	public void setSeed(long masterSeed) {
+		swarmSeeds = new SplittableRandom(masterSeed);
+	}
+
+	/* Stops a running search after its current epoch.
+	 *
+	 */
+	public void stop() {
+		stopped = true;
+	}
+
+	/* Builds the tabu key of a board.
+	 *
+	 * @param: a particle
+	 * @return: queen positions per row as a string
+	 */
+	public String boardKey(Particle p) {
+		StringBuilder sb = new StringBuilder();
+		for(int i = 0; i < MAX_LENGTH; i++) {
+			sb.append(p.getData(i)).append(',');
+		}
+		return sb.toString();
+	}
+
+	/* Copies the queen positions of a particle.
+	 *
+	 * @param: a particle
+	 * @return: queen positions per row
+	 */
+	public int[] toArray(Particle p) {
+		int data[] = new int[MAX_LENGTH];
+		for(int i = 0; i < MAX_LENGTH; i++) {
+			data[i] = p.getData(i);
+		}
+		return data;
+	}
+
+	/* gets the number of distinct solutions found so far
+	 *
+	 * @return: distinct solution count
+	 */
+	public int getDistinctCount() {
+		return tabu.size();
+	}
+
+	/* gets the distinct solutions found per second by the last search
+	 *
+	 * @return: solutions per second
+	 */
+	public double getThroughput() {
+		long elapsed = (endTime > startTime ? endTime : System.nanoTime()) - startTime;
+		return elapsed <= 0 ? 0 : searchCount / (elapsed / 1e9);
+	}
+
+	/* gets the PSO used for the search, to change its parameters
+	 *
+	 * @return: pso
+	 */
+	public ParticleSwarmOptimization getPso() {
+		return pso;
+	}
+
+	/* Streams distinct solutions for one n and reports the throughput.
+	 * Usage: java SolutionEnumerator <n> [maxSolutions] [seconds] [seed]
+	 *
+	 */
+	public static void main(String args[]) {
+		int n = Integer.parseInt(args[0]);
+		int maxSolutions = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+		long seconds = args.length > 2 ? Long.parseLong(args[2]) : 60;
+
+		SolutionEnumerator enumerator = new SolutionEnumerator(n);
+		if(args.length > 3) {
+			enumerator.setSeed(Long.parseLong(args[3]));
+		}
+		Stream<int[]> solutions = enumerator.stream(maxSolutions, seconds * 1000);
+		Iterator<int[]> it = solutions.iterator();
+		int count = 0;
+		while(it.hasNext()) {
+			int[] solution = it.next();
+			count++;
+			StringBuilder sb = new StringBuilder();
+			for(int i = 0; i < solution.length; i++) {
+				sb.append(solution[i]).append(i < solution.length - 1 ? "," : "");
+			}
+			System.out.println("solution " + count + ": " + sb.toString());
+		}
+		solutions.close();
+
+		System.out.println("Distinct solutions: " + enumerator.getDistinctCount());
+		System.out.println("Distinct solutions per second: " + String.format("%.2f", enumerator.getThroughput()));
+	}
+}
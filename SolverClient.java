@@ -0,0 +1,179 @@
+/* SolverClient.java
+ *
+ * Loopback client for SolverServer.java. Sends SOLVE requests and reads the replies as they stream back.
+ * Running main without a port starts a server in this JVM and drives it from several clients at once,
+ * which is enough to check queueing, backpressure and timeouts locally.
+ *
+ * @author: James M. Bayon-on
+ * @version: 1.0
+ */
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+
+public class SolverClient {
+	private Socket socket;
+	private BufferedReader in;
+	private PrintWriter out;
+
+	/* Connects to a solver server on this machine.
+	 *
+	 * @param: port of the server
+	 */
+	public SolverClient(int port) throws IOException {
+		socket = new Socket(InetAddress.getLoopbackAddress(), port);
+		in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+		out = new PrintWriter(socket.getOutputStream(), true);
+	}
+
+	/* Queues a job using the server's default parameters.
+	 *
+	 * @param: job id
+	 * @param: size of n
+	 */
+	public void submit(String id, int n) {
+		out.println("SOLVE " + id + " " + n);
+	}
+
+	/* Queues a job using the server's default parameters and a seed, e.g. to replay a search from an earlier reply.
+	 *
+	 * @param: job id
+	 * @param: size of n
+	 * @param: seed of the search
+	 */
+	public void submit(String id, int n, long seed) {
+		out.println("SOLVE " + id + " " + n + " " + seed);
+	}
+
+	/* Queues a job with the given parameters.
+	 *
+	 * @param: job id
+	 * @param: size of n
+	 * @param: max velocity for PSO
+	 * @param: max epoch for PSO
+	 * @param: timeout in milliseconds
+	 */
+	public void submit(String id, int n, double maxVelocity, int maxEpochs, long timeoutMillis) {
+		out.println("SOLVE " + id + " " + n + " " + maxVelocity + " " + maxEpochs + " " + timeoutMillis);
+	}
+
+	/* Queues a job with the given parameters and seed, e.g. to replay a search from an earlier reply.
+	 *
+	 * @param: job id
+	 * @param: size of n
+	 * @param: max velocity for PSO
+	 * @param: max epoch for PSO
+	 * @param: timeout in milliseconds
+	 * @param: seed of the search
+	 */
+	public void submit(String id, int n, double maxVelocity, int maxEpochs, long timeoutMillis, long seed) {
+		out.println("SOLVE " + id + " " + n + " " + maxVelocity + " " + maxEpochs + " " + timeoutMillis + " " + seed);
+	}
+
+	/* Waits for the next reply from the server.
+	 *
+	 * @return: reply line, null if the server closed the connection
+	 */
+	public String readReply() throws IOException {
+		return in.readLine();
+	}
+
+	/* Tells the server this client is done and closes the connection.
+	 *
+	 */
+	public void close() throws IOException {
+		out.println("QUIT");
+		socket.close();
+	}
+
+	/* Submits a batch of jobs from one client and prints every reply.
+	 *
+	 * @param: port of the server
+	 * @param: name used in job ids
+	 * @param: number of jobs
+	 * @param: size of n
+	 * @param: timeout in milliseconds
+	 */
+	public static void runClient(int port, String name, int jobs, int n, long timeoutMillis) throws IOException {
+		SolverClient client = new SolverClient(port);
+		for(int i = 0; i < jobs; i++) {
+			client.submit(name + "-" + i, n, 4, 5000, timeoutMillis);
+		}
+		for(int i = 0; i < jobs; i++) {
+			String reply = client.readReply();
+			if(reply == null) {
+				break;
+			}
+			System.out.println(name + " <- " + reply);
+		}
+		client.close();
+	}
+
+	/* Sends jobs to a running server, or to one started in this JVM when no port is given.
+	 * Usage: java SolverClient [port]
+	 *
+	 */
+	public static void main(String args[]) throws Exception {
+		SolverServer server = null;
+		int port = 0;
+
+		if(args.length > 0) {
+			port = Integer.parseInt(args[0]);
+		} else {
+			server = new SolverServer(0, 2, 8);								//small queue so the flood client sees BUSY
+			server.start();
+			port = server.getPort();
+		}
+
+		final int serverPort = port;
+		Thread[] clients = new Thread[] {
+			new Thread(new Runnable() {
+				public void run() {
+					try {
+						runClient(serverPort, "small", 5, 8, 10000);
+					} catch (IOException e) {
+						System.out.println("small client failed");
+					}
+				}
+			}),
+			new Thread(new Runnable() {
+				public void run() {
+					try {
+						runClient(serverPort, "flood", 12, 12, 10000);
+					} catch (IOException e) {
+						System.out.println("flood client failed");
+					}
+				}
+			}),
+			new Thread(new Runnable() {
+				public void run() {
+					try {
+						runClient(serverPort, "tight", 2, 40, 1);
+					} catch (IOException e) {
+						System.out.println("tight client failed");
+					}
+				}
+			})
+		};
+
+		for(Thread t: clients) {
+			t.start();
+		}
+		for(Thread t: clients) {
+			t.join();
+		}
+
+		SolverClient stats = new SolverClient(port);
+		stats.out.println("STATS");
+		System.out.println(stats.readReply());
+		stats.close();
+
+		if(server != null) {
+			server.close();
+		}
+	}
+}
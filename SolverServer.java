@@ -0,0 +1,501 @@
+/* SolverServer.java
+ *
+ * Resident solver that keeps one JVM warm and solves N-Queens jobs sent over a loopback socket.
+ * Each client connection is read on its own thread and its jobs are queued onto a fixed pool of workers,
+ * so jobs no longer pay JVM startup and JIT warm-up the way a fresh TesterPSO run does.
+ *
+ * Protocol is one line of text per request and per reply:
+ * SOLVE <id> <n> [seed]                                - queues a job using the tuned profile for n
+ * SOLVE <id> <n> maxVelocity maxEpochs timeoutMillis [seed]  - queues a job with the given parameters
+ * FRESH ...                                             - same forms as SOLVE but never answered from the solution cache
+ * STATS                                                 - reports time and epochs to solution over every job so far
+ * QUIT                                                  - closes the connection
+ *
+ * SOLVED <id> <epoch> <nanoseconds> <q0,q1,...> <seed>  - solution found, queen position per row, seed - if from the cache
+ * FAILED <id> <epoch> <nanoseconds> <seed>              - no solution within max epochs
+ * TIMEOUT <id>                                   - job ran past its timeout
+ * BUSY <id>                                      - job queue is full, try again later
+ * STATS <time summary>; <epochs summary>                - answer to STATS, see RuntimeStats.java
+ * ERROR <request>                                - request could not be understood, or n is above MAX_N
+ * ERROR <id>                                     - job failed on its worker, e.g. out of memory
+ *
+ * Replies are streamed back as jobs finish, so they may come back in a different order than they were sent.
+ * Each client has its own outbox and writer thread, so workers never block on a client that stops reading;
+ * a client whose outbox fills up is disconnected.
+ * The seed in a reply replays that search exactly when sent back in the same form, with the same parameters or the
+ * same profile file, and no cache.
+ * With a SolutionCache.java, SOLVE is answered right away from a stored solution (epoch 0, seed -), and every search
+ * starts part of its swarm from the stored boards for its n and stores what it finds.
+ *
+ * @author: James M. Bayon-on
+ * @version: 1.0
+ */
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+public class SolverServer {
+	private static final int OUTBOX_CAPACITY = 64;	//replies queued for a client before it counts as hung
+
+	private int PORT;
+	private int WORKER_COUNT;				//number of jobs solved at the same time
+	private int QUEUE_CAPACITY;				//jobs waiting for a worker before clients get BUSY
+	private double DEFAULT_V_MAX;
+	private int DEFAULT_MAX_EPOCHS;
+	private long DEFAULT_TIMEOUT;			//milliseconds
+	private int MAX_N;						//largest n accepted, a swarm of 40 boards this size still fits the heap
+
+	private ServerSocket serverSocket;
+	private ThreadPoolExecutor workers;
+	private SolutionCache cache;
+	private double WARM_START_FRACTION;		//share of particles seeded from cached boards
+	private volatile boolean running;
+	private ArrayList<RuntimeStats[]> workerStats;		//time and epoch stats of every worker, merged on STATS
+	private ThreadLocal<RuntimeStats[]> localStats;		//each worker records into its own, no contention
+
+	/* Replies waiting to be written to one client by its own writer thread.
+	 *
+	 */
+	private static class Outbox {
+		Socket socket;
+		ArrayBlockingQueue<String> queue;
+		Thread writer;
+		volatile boolean closed;			//client quit or was dropped, later replies are discarded
+
+		/* Starts the writer thread of a client.
+		 *
+		 * @param: a connected client socket
+		 * @param: writer to the client
+		 */
+		Outbox(final Socket socket, final PrintWriter out) {
+			this.socket = socket;
+			this.queue = new ArrayBlockingQueue<String>(OUTBOX_CAPACITY);
+			this.closed = false;
+			this.writer = new Thread(new Runnable() {
+				public void run() {
+					try {
+						while(!out.checkError()) {
+							out.println(queue.take());
+						}
+					} catch (InterruptedException e) {
+						String line = null;
+						while((line = queue.poll()) != null && !out.checkError()) {	//client quit, send what is left
+							out.println(line);
+						}
+					} finally {
+						close();
+					}
+				}
+			}, "solver-writer-" + socket.getPort());
+			writer.setDaemon(true);
+			writer.start();
+		}
+
+		/* Closes the client's socket, which also ends its reader thread and any blocked write.
+		 *
+		 */
+		void close() {
+			closed = true;
+			try {
+				socket.close();
+			} catch (IOException e) {
+				//already closed
+			}
+		}
+	}
+
+	/* Instantiates the solver server.
+	 *
+	 * @param: port to listen on, 0 to pick a free one
+	 * @param: number of worker threads
+	 * @param: number of jobs allowed to wait in the queue
+	 */
+	public SolverServer(int port, int workerCount, int queueCapacity) {
+		PORT = port;
+		WORKER_COUNT = workerCount;
+		QUEUE_CAPACITY = queueCapacity;
+		DEFAULT_V_MAX = 4;
+		DEFAULT_MAX_EPOCHS = 5000;
+		DEFAULT_TIMEOUT = 60000;
+		MAX_N = 1 << 16;
+		WARM_START_FRACTION = 0.25;
+		cache = null;
+		running = false;
+		workerStats = new ArrayList<RuntimeStats[]>();
+		localStats = new ThreadLocal<RuntimeStats[]>() {
+			protected RuntimeStats[] initialValue() {
+				RuntimeStats[] stats = new RuntimeStats[] {new RuntimeStats("time in nanoseconds"), new RuntimeStats("epochs")};
+				synchronized(workerStats) {
+					workerStats.add(stats);
+				}
+				return stats;
+			}
+		};
+	}
+
+	/* Binds the loopback socket, warms up the workers and starts accepting clients in the background.
+	 *
+	 */
+	public void start() throws IOException {
+		serverSocket = new ServerSocket(PORT, 50, InetAddress.getLoopbackAddress());
+		workers = new ThreadPoolExecutor(WORKER_COUNT, WORKER_COUNT, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(QUEUE_CAPACITY));
+		running = true;
+
+		warmUp();
+
+		Thread acceptor = new Thread(new Runnable() {
+			public void run() {
+				acceptClients();
+			}
+		}, "solver-acceptor");
+		acceptor.start();
+	}
+
+	/* Runs a few small solves on every worker so the JIT has compiled the PSO loop before real jobs arrive.
+	 *
+	 */
+	public void warmUp() {
+		final CountDownLatch warm = new CountDownLatch(WORKER_COUNT);
+		workers.prestartAllCoreThreads();
+		for(int i = 0; i < WORKER_COUNT; i++) {
+			workers.execute(new Runnable() {
+				public void run() {
+					for(int j = 0; j < 20; j++) {
+						ParticleSwarmOptimization pso = new ParticleSwarmOptimization(8);
+						pso.setVerbose(false);
+						pso.setMaxEpoch(1000);
+						pso.algorithm();
+					}
+					warm.countDown();
+				}
+			});
+		}
+
+		try {
+			warm.await();													//keep the queue free for real jobs
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/* Accepts clients until the server is closed, serving each one on its own thread.
+	 *
+	 */
+	public void acceptClients() {
+		while(running) {
+			try {
+				final Socket client = serverSocket.accept();
+				Thread handler = new Thread(new Runnable() {
+					public void run() {
+						serveClient(client);
+					}
+				}, "solver-client-" + client.getPort());
+				handler.start();
+			} catch (IOException e) {
+				if(running) {
+					System.out.println("Accepting client failed");
+				}
+			}
+		}
+	}
+
+	/* Reads requests from a client until it quits or disconnects.
+	 *
+	 * @param: a connected client socket
+	 */
+	public void serveClient(Socket client) {
+		Outbox out = null;
+		try {
+			BufferedReader in = new BufferedReader(new InputStreamReader(client.getInputStream()));
+			out = new Outbox(client, new PrintWriter(client.getOutputStream(), true));
+			String line = null;
+
+			while((line = in.readLine()) != null) {
+				line = line.trim();
+				if(line.equals("QUIT")) {
+					break;
+				} else if(line.equals("STATS")) {
+					RuntimeStats[] stats = getStats();
+					reply(out, "STATS " + stats[0].summary() + "; " + stats[1].summary());
+				} else if(line.startsWith("SOLVE ") || line.startsWith("FRESH ")) {
+					submit(line, out);
+				} else if(line.length() > 0) {
+					reply(out, "ERROR " + line);
+				}
+			}
+		} catch (SocketException e) {
+			//client went away, nothing to reply to
+		} catch (IOException e) {
+			System.out.println("Reading client failed");
+		} finally {
+			if(out != null) {
+				out.writer.interrupt();										//writer sends queued replies, then closes
+			} else {
+				try {
+					client.close();
+				} catch (IOException e) {
+					//already closed
+				}
+			}
+		}
+	}
+
+	/* Parses a SOLVE or FRESH request and queues it, replying BUSY right away if the queue is full.
+	 *
+	 * @param: the request line
+	 * @param: outbox of the requesting client
+	 */
+	private void submit(String line, Outbox out) {
+		String[] args = line.split("\\s+");
+		if(args.length != 3 && args.length != 4 && args.length != 6 && args.length != 7) {
+			reply(out, "ERROR " + line);
+			return;
+		}
+
+		final String id = args[1];
+		final int n;
+		final double maxVelocity;
+		final int maxEpochs;
+		final long timeout;
+		final boolean seeded = args.length == 4 || args.length == 7;
+		final long seed;
+		try {
+			n = Integer.parseInt(args[2]);
+			maxVelocity = args.length >= 6 ? Double.parseDouble(args[3]) : DEFAULT_V_MAX;
+			maxEpochs = args.length >= 6 ? Integer.parseInt(args[4]) : DEFAULT_MAX_EPOCHS;
+			timeout = args.length >= 6 ? Long.parseLong(args[5]) : DEFAULT_TIMEOUT;
+			seed = seeded ? Long.parseLong(args[args.length - 1]) : 0;
+		} catch (NumberFormatException e) {
+			reply(out, "ERROR " + line);
+			return;
+		}
+		if(n < 4 || n > MAX_N) {											//no solutions below 4 queens
+			reply(out, "ERROR " + line);
+			return;
+		}
+
+		if(cache != null && args[0].equals("SOLVE")) {						//repeat request, answer from the cache
+			Particle cached = cache.getSolution(n);
+			if(cached != null) {
+				reply(out, "SOLVED " + id + " 0 0 " + toLine(cached) + " -");		//no search ran, no seed to replay
+				return;
+			}
+		}
+
+		final boolean useProfile = args.length <= 4;
+		final Outbox client = out;
+		final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);	//timeout counts time spent queued
+		try {
+			workers.execute(new Runnable() {
+				public void run() {
+					solve(id, n, useProfile, maxVelocity, maxEpochs, seeded, seed, deadline, client);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			reply(out, "BUSY " + id);
+		}
+	}
+
+	/* Solves one job on the calling worker and replies with the outcome.
+	 * Always replies, with ERROR if the search itself failed, so the client is never left waiting.
+	 *
+	 * @param: job id given by the client
+	 * @param: size of n
+	 * @param: true to load the tuned profile for n, falling back to the given parameters when there is none
+	 * @param: max velocity for PSO
+	 * @param: max epoch for PSO
+	 * @param: true to use the given seed, false to draw a fresh one
+	 * @param: seed of the search
+	 * @param: deadline in System.nanoTime() units
+	 * @param: outbox of the requesting client
+	 */
+	private void solve(String id, int n, boolean useProfile, double maxVelocity, int maxEpochs, boolean seeded, long seed,
+			long deadline, Outbox out) {
+		long startTime = System.nanoTime();
+		if(startTime - deadline > 0) {										//expired while waiting in the queue
+			RuntimeStats[] stats = localStats.get();
+			stats[0].recordFailure();
+			stats[1].recordFailure();
+			reply(out, "TIMEOUT " + id);
+			return;
+		}
+
+		try {
+			ParticleSwarmOptimization pso = new ParticleSwarmOptimization(n);
+			pso.setVerbose(false);
+			pso.setVMax(maxVelocity);
+			pso.setMaxEpoch(maxEpochs);
+			if(useProfile) {
+				pso.loadProfile(ParticleSwarmOptimization.getProfileName(n));
+			}
+			pso.setDeadline(deadline);
+			if(seeded) {
+				pso.setSeed(seed);
+			}
+			if(cache != null) {
+				pso.setWarmStart(cache.getElites(n), WARM_START_FRACTION);
+			}
+
+			boolean found = pso.algorithm() && isSolution(pso.getSolutions().get(0));
+			long totalTime = System.nanoTime() - startTime;
+
+			if(cache != null) {
+				cache.offer(pso.getBestParticle());
+			}
+
+			RuntimeStats[] stats = localStats.get();
+			if(found) {
+				stats[0].record(totalTime);
+				stats[1].record(pso.getEpoch());
+			} else {
+				stats[0].recordFailure();
+				stats[1].recordFailure();
+			}
+
+			if(found) {
+				reply(out, "SOLVED " + id + " " + pso.getEpoch() + " " + totalTime + " " + toLine(pso.getSolutions().get(0)) + " " + pso.getSeed());
+			} else if(System.nanoTime() - deadline > 0) {
+				reply(out, "TIMEOUT " + id);
+			} else {
+				reply(out, "FAILED " + id + " " + pso.getEpoch() + " " + totalTime + " " + pso.getSeed());
+			}
+		} catch (RuntimeException e) {
+			System.out.println("Job " + id + " failed: " + e);
+			reply(out, "ERROR " + id);
+		} catch (OutOfMemoryError e) {
+			System.out.println("Job " + id + " ran out of memory");
+			reply(out, "ERROR " + id);
+		}
+	}
+
+	/* Rescores a board the search reported as solved, so a wrong score never reaches a client as a solution.
+	 *
+	 * @param: a reported solution
+	 * @return: true if the board really has zero conflicts
+	 */
+	public boolean isSolution(Particle p) {
+		long reported = p.getConflicts();
+		p.computeConflicts();
+		if(p.getConflicts() != 0 || reported != 0) {
+			System.out.println("Reported solution has " + p.getConflicts() + " conflicts, not 0");
+			return false;
+		}
+		return true;
+	}
+
+	/* Queues a reply line for the client's writer without blocking, disconnecting the client if its outbox is full.
+	 *
+	 * @param: outbox of the client
+	 * @param: reply line
+	 */
+	private void reply(Outbox out, String line) {
+		if(out.closed) {
+			return;
+		}
+		if(!out.queue.offer(line)) {
+			System.out.println("Dropped client " + out.socket.getPort() + ", not reading its replies");
+			out.close();
+		}
+	}
+
+	/* Converts the queen positions of a particle into a comma separated string.
+	 *
+	 * @param: a particle
+	 * @return: queen positions per row
+	 */
+	public String toLine(Particle p) {
+		StringBuilder sb = new StringBuilder();
+		for(int i = 0; i < p.getMaxLength(); i++) {
+			if(i > 0) {
+				sb.append(',');
+			}
+			sb.append(p.getData(i));
+		}
+		return sb.toString();
+	}
+
+	/* Stops accepting clients and lets queued jobs finish.
+	 *
+	 */
+	public void close() {
+		running = false;
+		try {
+			serverSocket.close();
+		} catch (IOException e) {
+			//already closed
+		}
+		workers.shutdown();
+	}
+
+	/* Merges the stats of every worker.
+	 *
+	 * @return: time and epoch stats over every job searched so far
+	 */
+	public RuntimeStats[] getStats() {
+		RuntimeStats[] total = new RuntimeStats[] {new RuntimeStats("time in nanoseconds"), new RuntimeStats("epochs")};
+		synchronized(workerStats) {
+			for(RuntimeStats[] stats: workerStats) {
+				total[0].merge(stats[0]);
+				total[1].merge(stats[1]);
+			}
+		}
+		return total;
+	}
+
+	/* sets the solution cache used to answer repeat requests and to seed new searches
+	 *
+	 * @param: an opened solution cache, null for none
+	 */
+	public void setCache(SolutionCache cache) {
+		this.cache = cache;
+	}
+
+	/* gets the port the server listens on
+	 *
+	 * @return: port
+	 */
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	/* Starts the server.
+	 * Usage: java SolverServer [port] [workers] [queueCapacity] [cacheFile]
+	 *
+	 */
+	public static void main(String args[]) throws IOException {
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : 7070;
+		int workerCount = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		int queueCapacity = args.length > 2 ? Integer.parseInt(args[2]) : 64;
+
+		SolverServer server = new SolverServer(port, workerCount, queueCapacity);
+		if(args.length > 3) {
+			final SolutionCache cache = new SolutionCache(args[3], 1 << 20, 8);
+			cache.open();
+			server.setCache(cache);
+			Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+				public void run() {
+					try {
+						cache.close();
+					} catch (IOException e) {
+						System.out.println("Closing cache failed");
+					}
+				}
+			}));
+		}
+		server.start();
+		System.out.println("Solver listening on port " + server.getPort() + " with " + workerCount + " workers");
+	}
+}
@@ -0,0 +1,139 @@
+/* TSPProblem.java
+ *
+ * Travelling salesman problem as a permutation problem. The permutation is the order the cities are visited in,
+ * returning to the first city at the end. Fitness is the length of the tour over an integer distance matrix,
+ * which may be asymmetric.
+ *
+ * @author: James M. Bayon-on
+ * @version: 1.0
+ */
+
+public class TSPProblem implements PermutationProblem {
+	private int MAX_LENGTH;
+	private int distances[][];
+	private long TARGET;
+
+	/* Instantiates the problem from a distance matrix.
+	 *
+	 * @param: distances[a][b] is the distance from city a to city b
+	 */
+	public TSPProblem(int[][] distances) {
+		MAX_LENGTH = distances.length;
+		this.distances = distances;
+		TARGET = Long.MIN_VALUE;
+	}
+
+	/* Builds the problem from city coordinates, rounding euclidean distances to the nearest integer.
+	 *
+	 * @param: x coordinate per city
+	 * @param: y coordinate per city
+	 * @return: the problem
+	 */
+	public static TSPProblem fromCoordinates(double[] x, double[] y) {
+		int n = x.length;
+		int distances[][] = new int[n][n];
+		for(int a = 0; a < n; a++) {
+			for(int b = 0; b < n; b++) {
+				distances[a][b] = (int)Math.round(Math.hypot(x[a] - x[b], y[a] - y[b]));
+			}
+		}
+		return new TSPProblem(distances);
+	}
+
+	/* Gets the number of cities.
+	 *
+	 * @return: n
+	 */
+	public int size() {
+		return MAX_LENGTH;
+	}
+
+	/* Measures a whole tour.
+	 *
+	 * @param: cities in visiting order
+	 * @return: tour length
+	 */
+	public long evaluate(int[] permutation) {
+		long length = 0;
+		for(int k = 0; k < MAX_LENGTH - 1; k++) {
+			length += distances[permutation[k]][permutation[k + 1]];
+		}
+		length += distances[permutation[MAX_LENGTH - 1]][permutation[0]];
+		return length;
+	}
+
+	/* Computes the change in tour length if two stops of the tour were swapped.
+	 * Only the edges leaving the stops before and at each swapped position change.
+	 *
+	 * @param: cities in visiting order
+	 * @param: first position
+	 * @param: second position
+	 * @return: length after the swap minus length before it
+	 */
+	public long swapDelta(int[] permutation, int i, int j) {
+		if(i == j) {
+			return 0;
+		}
+
+		int previousI = (i + MAX_LENGTH - 1) % MAX_LENGTH;
+		int previousJ = (j + MAX_LENGTH - 1) % MAX_LENGTH;
+		long delta = edgeDelta(permutation, previousI, i, j) + edgeDelta(permutation, i, i, j);
+
+		if(previousJ != i) {							//adjacent swaps share an edge
+			delta += edgeDelta(permutation, previousJ, i, j);
+		}
+		if(j != previousI) {
+			delta += edgeDelta(permutation, j, i, j);
+		}
+
+		return delta;
+	}
+
+	/* Computes the change in length of the edge leaving a position if two positions were swapped.
+	 *
+	 * @param: cities in visiting order
+	 * @param: position the edge leaves from
+	 * @param: first swapped position
+	 * @param: second swapped position
+	 * @return: edge length after the swap minus edge length before it
+	 */
+	private long edgeDelta(int[] permutation, int from, int i, int j) {
+		int to = (from + 1) % MAX_LENGTH;
+		return distances[cityAfterSwap(permutation, from, i, j)][cityAfterSwap(permutation, to, i, j)]
+				- distances[permutation[from]][permutation[to]];
+	}
+
+	/* Gets the city at a position of the tour as if two positions were swapped.
+	 *
+	 * @param: cities in visiting order
+	 * @param: position to look up
+	 * @param: first swapped position
+	 * @param: second swapped position
+	 * @return: city at the position after the swap
+	 */
+	private int cityAfterSwap(int[] permutation, int k, int i, int j) {
+		if(k == i) {
+			return permutation[j];
+		}
+		if(k == j) {
+			return permutation[i];
+		}
+		return permutation[k];
+	}
+
+	/* Gets the tour length at which the search can stop.
+	 *
+	 * @return: target length, Long.MIN_VALUE unless set
+	 */
+	public long target() {
+		return TARGET;
+	}
+
+	/* Sets a tour length that is good enough to stop the search, e.g. a known optimum.
+	 *
+	 * @param: target length
+	 */
+	public void setTarget(long target) {
+		this.TARGET = target;
+	}
+}
@@ -4,17 +4,26 @@
  * PSO testing setup is according to pass/fail criteria
  * Pass criteria - 50 success
  * Fail criteria - 100 failures
+ * Every run is seeded from one master seed and its seed is logged, so any logged run can be replayed exactly.
+ * Time and epochs to solution are summarized with RuntimeStats.java per test and across the whole sweep.
  *
  * @author: James M. Bayon-on
  * @version: 1.3
  */
 
+import java.util.Random;
+import java.util.SplittableRandom;
+
 public class TesterPSO {
 	Writer logWriter;
 	ParticleSwarmOptimization pso;
 	int MAX_RUN;
 	int MAX_LENGTH;
-	long[] runtimes;
+	RuntimeStats timeStats;
+	RuntimeStats epochStats;
+	RuntimeStats sweepTimeStats;
+	RuntimeStats sweepEpochStats;
+	long masterSeed;
 
 	/* Instantiates the TesterPSO class
 	 *
@@ -22,7 +31,18 @@ public class TesterPSO {
 	public TesterPSO() {
 		logWriter = new Writer();
 		MAX_RUN = 50;
-		runtimes = new long[MAX_RUN];
+		sweepTimeStats = new RuntimeStats("Sweep time in nanoseconds");
+		sweepEpochStats = new RuntimeStats("Sweep epochs");
+		masterSeed = new Random().nextLong();
+	}
+
+	/* Instantiates the TesterPSO class with a fixed master seed so a whole sweep can be repeated.
+	 *
+	 * @param: master seed every run seed is derived from
+	 */
+	public TesterPSO(long masterSeed) {
+		this();
+		this.masterSeed = masterSeed;
 	}
 
 	/* Test method accepts the N/max length, and parameters mutation rate and max epoch to set for the PSO accordingly.
@@ -36,8 +56,12 @@ public class TesterPSO {
 		pso = new ParticleSwarmOptimization(MAX_LENGTH);		//instantiate and define params for PSO here
 		pso.setVMax(maxVelocity);
 		pso.setMaxEpoch(maxEpoch);
+		timeStats = new RuntimeStats("Time in nanoseconds");
+		epochStats = new RuntimeStats("Epochs");
 		long testStart = System.nanoTime();
 		String filepath = "PSO-N"+MAX_LENGTH+"-"+maxVelocity+"-"+maxEpoch+".txt";
+		SplittableRandom runSeeds = new SplittableRandom(masterSeed ^ (filepath.hashCode() * 0x9E3779B97F4A7C15L));	//same cell, same seeds, whatever ran before it
+		long runSeed = 0;
 		long startTime = 0;
         long endTime = 0;
         long totalTime = 0;
@@ -47,6 +71,8 @@ public class TesterPSO {
 		logParameters();
         
         for(int i = 0; i < MAX_RUN; ) {												//run 50 sucess to pass passing criteria
+        	runSeed = runSeeds.nextLong();
+        	pso.setSeed(runSeed);
         	startTime = System.nanoTime();
         	if(pso.algorithm()) {
         		endTime = System.nanoTime();
@@ -57,7 +83,8 @@ public class TesterPSO {
             	System.out.println("time in nanoseconds: "+totalTime);
             	System.out.println("Success!");
             	
-            	runtimes[i] = totalTime;
+            	timeStats.record(totalTime);
+            	epochStats.record(pso.getEpoch());
             	i++;
             	success++;
             	
@@ -66,6 +93,8 @@ public class TesterPSO {
             	logWriter.add((String)("Runtime in nanoseconds: "+totalTime));
             	logWriter.add((String)("Found at epoch: "+pso.getEpoch()));
             	logWriter.add((String)("Population size: "+pso.getPopSize()));
+            	logWriter.add((String)("Seed: "+runSeed));
+            	logWriter.add((String)("Duplicate rate: "+pso.getDuplicateRate()));
             	logWriter.add("");
             	
             	for(Particle p: pso.getSolutions()) {								//write solutions to log file
@@ -74,7 +103,11 @@ public class TesterPSO {
     			}
         	} else {																//count failures for failing criteria
         		fail++;
+        		timeStats.recordFailure();
+        		epochStats.recordFailure();
         		System.out.println("Fail!");
+        		logWriter.add((String)("Failed run seed: "+runSeed));
+        		logWriter.add("");
         	}
         	
         	if(fail >= 100) {
@@ -90,10 +123,12 @@ public class TesterPSO {
         System.out.println("Number of failures: "+fail);
         logWriter.add("Runtime summary");
         logWriter.add("");
-        
-		for(int x = 0; x < runtimes.length; x++){									//print runtime summary
-			logWriter.add(Long.toString(runtimes[x]));
-		}
+        logWriter.add(timeStats.summary());											//print runtime summary
+        logWriter.add(epochStats.summary());
+        logWriter.add("");
+		
+		sweepTimeStats.merge(timeStats);
+		sweepEpochStats.merge(epochStats);
 		
 		long testEnd = System.nanoTime();
 		logWriter.add(Long.toString(testStart));
@@ -117,6 +152,7 @@ public class TesterPSO {
         logWriter.add((String)("MAX_VELOCITY: "+pso.getVmax()));
         logWriter.add((String)("MINIMUM_SHUFFLES: "+pso.getShuffleMin()));
         logWriter.add((String)("MAXIMUM_SHUFFLES: "+pso.getShuffleMax()));
+        logWriter.add((String)("MASTER_SEED: "+masterSeed));
         logWriter.add("");
 	}
 
@@ -124,13 +160,53 @@ public class TesterPSO {
 	 *
 	 */
 	public void printRuntimes() {
-		for(long x: runtimes){
-			System.out.println("run with time "+x+" nanoseconds");
-		}	
+		System.out.println(timeStats.summary());
+		System.out.println(epochStats.summary());
+	}
+
+	/* Prints the runtime summary of every test run so far in the console
+	 *
+	 */
+	public void printSweepSummary() {
+		System.out.println(sweepTimeStats.summary());
+		System.out.println(sweepEpochStats.summary());
+	}
+
+	/* Replays one logged run exactly, using the parameters and seed from its log file.
+	 *
+	 * @param: max length/n
+	 * @param: max velocity for PSO
+	 * @param: max epoch for PSO
+	 * @param: seed of the run
+	 */
+	public void replay(int maxLength, double maxVelocity, int maxEpoch, long seed) {
+		MAX_LENGTH = maxLength;
+		pso = new ParticleSwarmOptimization(MAX_LENGTH);
+		pso.setVMax(maxVelocity);
+		pso.setMaxEpoch(maxEpoch);
+		pso.setSeed(seed);
+
+		long startTime = System.nanoTime();
+		boolean found = pso.algorithm();
+		long totalTime = System.nanoTime() - startTime;
+
+		System.out.println(found ? "Success!" : "Fail!");
+		System.out.println("Found at epoch: "+pso.getEpoch());
+		System.out.println("time in nanoseconds: "+totalTime);
 	}
 
+	/* Runs the tests.
+	 * Usage: java TesterPSO [masterSeed]
+	 *        java TesterPSO replay <n> <maxVelocity> <maxEpoch> <seed>
+	 *
+	 */
 	public static void main(String args[]) {
-		TesterPSO tester = new TesterPSO();
+		if(args.length == 5 && args[0].equals("replay")) {
+			new TesterPSO().replay(Integer.parseInt(args[1]), Double.parseDouble(args[2]), Integer.parseInt(args[3]), Long.parseLong(args[4]));
+			return;
+		}
+
+		TesterPSO tester = args.length > 0 ? new TesterPSO(Long.parseLong(args[0])) : new TesterPSO();
 
 		tester.test(4, 4, 1000);
 /*		tester.test(8, 4, 1000);
@@ -204,5 +280,7 @@ public class TesterPSO {
 		tester.test(20, 16, 500000);
 		tester.test(20, 20, 500000);
 */
+
+		tester.printSweepSummary();
 	}
 }